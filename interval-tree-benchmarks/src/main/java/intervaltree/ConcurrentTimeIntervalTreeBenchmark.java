@@ -0,0 +1,94 @@
+/***************************************************************************
+ * COPYRIGHT (C) 2018, Munish Bhatia.
+ * All rights reserved. This material contains unpublished, copyrighted
+ * work including confidential and proprietary information.
+ ***************************************************************************/
+
+package intervaltree;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+* Measures ConcurrentTimeIntervalTree against ReadWriteLockedTimeIntervalTree under contention:
+* six threads query availability while two threads book and cancel intervals
+* */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConcurrentTimeIntervalTreeBenchmark {
+   //Number of distinct queries and bookings cycled through; a power of two
+   private static final int OPERATIONS = 4096;
+
+   @Param({"100000", "1000000"})
+   public int size;
+
+   @Param({"SNAPSHOT", "READ_WRITE_LOCK"})
+   public String implementation;
+
+   private Function<TimeInterval, List<TimeInterval>> query;
+   private Consumer<TimeInterval> insert, delete;
+   private List<TimeInterval> queries, bookings;
+
+   @State(Scope.Thread)
+   public static class Cursor {
+      int next;
+   }
+
+   @Setup
+   public void setUp(){
+      List<TimeInterval> intervals = IntervalDistribution.UNIFORM.generate(size, 1);
+      if(implementation.equals("SNAPSHOT")){
+         ConcurrentTimeIntervalTree tree = new ConcurrentTimeIntervalTree();
+         tree.insertIntervals(intervals.toArray(new TimeInterval[0]));
+         query = tree::getOverlappingIntervals;
+         insert = tree::insertInterval;
+         delete = tree::deleteInterval;
+      }
+      else{
+         ReadWriteLockedTimeIntervalTree tree = new ReadWriteLockedTimeIntervalTree();
+         for(TimeInterval interval:intervals)
+            tree.insertInterval(interval);
+         query = tree::getOverlappingIntervals;
+         insert = tree::insertInterval;
+         delete = tree::deleteInterval;
+      }
+      queries = IntervalDistribution.CLUSTERED.generate(OPERATIONS, 2);
+      bookings = IntervalDistribution.UNIFORM.generate(OPERATIONS, 3);
+   }
+
+   @Benchmark
+   @Group("contention")
+   @GroupThreads(6)
+   public int read(Cursor cursor){
+      return query.apply(queries.get(cursor.next++ & (OPERATIONS - 1))).size();
+   }
+
+   @Benchmark
+   @Group("contention")
+   @GroupThreads(2)
+   public void write(Cursor cursor){
+      TimeInterval booking = bookings.get(cursor.next++ & (OPERATIONS - 1));
+      insert.accept(booking);
+      delete.accept(booking);
+   }
+}
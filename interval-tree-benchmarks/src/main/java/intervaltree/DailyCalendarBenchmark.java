@@ -0,0 +1,96 @@
+/***************************************************************************
+ * COPYRIGHT (C) 2018, Munish Bhatia.
+ * All rights reserved. This material contains unpublished, copyrighted
+ * work including confidential and proprietary information.
+ ***************************************************************************/
+package intervaltree;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+* Measures subtracting one small, minute-aligned daily calendar from another, the workload MinuteBitmap targets,
+* across many resources with every SubtractionEngine, one resource after another and fanned out on a SubtractionBatchExecutor
+* */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DailyCalendarBenchmark {
+   static final int RESOURCES = 1000;
+
+   @Param({"8", "32"})
+   public int intervalsPerDay;
+
+   @Param({"INTERVAL_TREE", "SORT_AND_SWEEP", "BITMAP"})
+   public String engine;
+
+   private final List<List<TimeInterval>> busy = new ArrayList<>(), blocked = new ArrayList<>();
+   private SubtractionEngine subtractionEngine;
+   private SubtractionBatchExecutor batchExecutor;
+
+   @Setup
+   public void setUp(){
+      Random random = new Random(1);
+      for(int r = 0; r < RESOURCES; r++){
+         busy.add(calendar(random, intervalsPerDay));
+         blocked.add(calendar(random, intervalsPerDay));
+      }
+      subtractionEngine = SubtractionEngine.valueOf(engine);
+      batchExecutor = new SubtractionBatchExecutor(subtractionEngine, 256);
+   }
+
+   @TearDown
+   public void tearDown(){
+      batchExecutor.close();
+   }
+
+   //Working hours calendar: intervals of 15 minutes to 2 hours starting on the quarter hour between 08:00 and 18:00
+   static List<TimeInterval> calendar(Random random, int intervalsPerDay){
+      List<TimeInterval> intervals = new ArrayList<>(intervalsPerDay);
+      for(int i = 0; i < intervalsPerDay; i++){
+         int start = 8 * 60 + 15 * random.nextInt(40), length = 15 * (1 + random.nextInt(8));
+         intervals.add(new TimeInterval(start / 60, start % 60, (start + length) / 60, (start + length) % 60));
+      }
+      return intervals;
+   }
+
+   @Benchmark
+   public int subtract(){
+      int residuals = 0;
+      for(int r = 0; r < RESOURCES; r++){
+         List<TimeInterval> result = subtractionEngine.subtract(busy.get(r), blocked.get(r));
+         residuals += result.size();
+      }
+      return residuals;
+   }
+
+   @Benchmark
+   public int subtractBatch() throws InterruptedException {
+      List<CompletableFuture<List<TimeInterval>>> results = new ArrayList<>(RESOURCES);
+      for(int r = 0; r < RESOURCES; r++)
+         results.add(batchExecutor.submit(busy.get(r), blocked.get(r)));
+      int residuals = 0;
+      for(CompletableFuture<List<TimeInterval>> result : results)
+         residuals += result.join().size();
+      return residuals;
+   }
+}
@@ -0,0 +1,77 @@
+/***************************************************************************
+ * COPYRIGHT (C) 2018, Munish Bhatia.
+ * All rights reserved. This material contains unpublished, copyrighted
+ * work including confidential and proprietary information.
+ ***************************************************************************/
+
+package intervaltree;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/*
+* Shapes of interval data the benchmarks run against
+* Intervals are generated at nanosecond resolution so even 10^7 of them are mostly distinct
+* */
+enum IntervalDistribution {
+   //Start times spread evenly over the day, lengths between one minute and two hours
+   UNIFORM {
+      @Override
+      TimeInterval next(Random random){
+         long start = (long) (random.nextDouble() * (DAY - 2 * HOUR));
+         return interval(start, start + MINUTE + (long) (random.nextDouble() * (2 * HOUR - MINUTE)));
+      }
+   },
+   //Start times bunched around the morning, lunch and afternoon peaks, lengths between fifteen minutes and an hour
+   CLUSTERED {
+      @Override
+      TimeInterval next(Random random){
+         long peak = PEAKS[random.nextInt(PEAKS.length)];
+         long start = clamp(peak + (long) (random.nextGaussian() * 20 * MINUTE));
+         return interval(start, start + 15 * MINUTE + (long) (random.nextDouble() * 45 * MINUTE));
+      }
+   },
+   //Intervals of every length centred on noon, so most of them contain one another
+   NESTED {
+      @Override
+      TimeInterval next(Random random){
+         long centre = 12 * HOUR + (long) (random.nextGaussian() * 5 * MINUTE);
+         long halfLength = MINUTE + (long) (random.nextDouble() * 11 * HOUR);
+         return interval(clamp(centre - halfLength), clamp(centre + halfLength));
+      }
+   },
+   //Start times on the hour only, so large runs of intervals share a start time
+   IDENTICAL_STARTS {
+      @Override
+      TimeInterval next(Random random){
+         long start = random.nextInt(23) * HOUR;
+         return interval(start, start + MINUTE + (long) (random.nextDouble() * (HOUR - MINUTE)));
+      }
+   };
+
+   static final long MINUTE = 60_000_000_000L;
+   static final long HOUR = 60 * MINUTE;
+   static final long DAY = 24 * HOUR;
+   private static final long[] PEAKS = {9 * HOUR, 12 * HOUR + 30 * MINUTE, 15 * HOUR};
+
+   //Generates the next interval of this distribution
+   abstract TimeInterval next(Random random);
+
+   //Generates 'count' intervals of this distribution; the same seed always gives the same intervals
+   List<TimeInterval> generate(int count, long seed){
+      Random random = new Random(seed);
+      List<TimeInterval> intervals = new ArrayList<>(count);
+      for(int i = 0; i < count; i++)
+         intervals.add(next(random));
+      return intervals;
+   }
+
+   private static TimeInterval interval(long startNanos, long endNanos){
+      return TimeInterval.ofNanosOfDay(startNanos, Math.min(endNanos, DAY - 1));
+   }
+
+   private static long clamp(long nanos){
+      return Math.max(0, Math.min(nanos, DAY - 1));
+   }
+}
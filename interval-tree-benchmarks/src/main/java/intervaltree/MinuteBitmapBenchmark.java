@@ -0,0 +1,83 @@
+/***************************************************************************
+ * COPYRIGHT (C) 2018, Munish Bhatia.
+ * All rights reserved. This material contains unpublished, copyrighted
+ * work including confidential and proprietary information.
+ ***************************************************************************/
+package intervaltree;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+* Measures MinuteBitmap set operations and conversions on the calendars of DailyCalendarBenchmark, across many resources
+* */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MinuteBitmapBenchmark {
+
+   @Param({"8", "32"})
+   public int intervalsPerDay;
+
+   private final List<List<TimeInterval>> busy = new ArrayList<>();
+   private final List<MinuteBitmap> busyBitmaps = new ArrayList<>(), blockedBitmaps = new ArrayList<>();
+
+   @Setup
+   public void setUp(){
+      Random random = new Random(1);
+      for(int r = 0; r < DailyCalendarBenchmark.RESOURCES; r++){
+         busy.add(DailyCalendarBenchmark.calendar(random, intervalsPerDay));
+         busyBitmaps.add(MinuteBitmap.of(busy.get(r)));
+         blockedBitmaps.add(MinuteBitmap.of(DailyCalendarBenchmark.calendar(random, intervalsPerDay)));
+      }
+   }
+
+   @Benchmark
+   public int subtract(){
+      int minutes = 0;
+      for(int r = 0; r < busyBitmaps.size(); r++)
+         minutes += busyBitmaps.get(r).copy().subtract(blockedBitmaps.get(r)).cardinality();
+      return minutes;
+   }
+
+   @Benchmark
+   public int intersect(){
+      int minutes = 0;
+      for(int r = 0; r < busyBitmaps.size(); r++)
+         minutes += busyBitmaps.get(r).copy().intersect(blockedBitmaps.get(r)).cardinality();
+      return minutes;
+   }
+
+   @Benchmark
+   public int fromIntervals(){
+      int minutes = 0;
+      for(List<TimeInterval> calendar:busy)
+         minutes += MinuteBitmap.of(calendar).cardinality();
+      return minutes;
+   }
+
+   @Benchmark
+   public int toIntervals(){
+      int intervals = 0;
+      for(MinuteBitmap bitmap:busyBitmaps)
+         intervals += bitmap.toIntervals().size();
+      return intervals;
+   }
+}
@@ -0,0 +1,85 @@
+/***************************************************************************
+ * COPYRIGHT (C) 2018, Munish Bhatia.
+ * All rights reserved. This material contains unpublished, copyrighted
+ * work including confidential and proprietary information.
+ ***************************************************************************/
+package intervaltree;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+* Measures overlap and stabbing queries on a NestedContainmentListIndex against a BalancedTimeIntervalTree over the same intervals
+* */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class StaticIndexBenchmark {
+   //Number of distinct queries cycled through; a power of two
+   private static final int QUERIES = 1024;
+
+   @Param({"1000", "100000", "10000000"})
+   public int size;
+
+   @Param({"UNIFORM", "CLUSTERED", "NESTED", "IDENTICAL_STARTS"})
+   public String distribution;
+
+   private BalancedTimeIntervalTree tree;
+   private NestedContainmentListIndex index;
+   private TimeInterval[] queries;
+   private LocalTime[] instants;
+   private final List<BalancedTimeIntervalTreeNode> treeBuffer = new ArrayList<>();
+   private final List<TimeInterval> indexBuffer = new ArrayList<>();
+   private int next = 0;
+
+   @Setup
+   public void setUp(){
+      List<TimeInterval> intervals = IntervalDistribution.valueOf(distribution).generate(size, 1);
+      tree = new BalancedTimeIntervalTree(intervals);
+      index = new NestedContainmentListIndex(intervals);
+      queries = new TimeInterval[QUERIES];
+      instants = new LocalTime[QUERIES];
+      for(int q = 0; q < QUERIES; q++){
+         long start = q * (IntervalDistribution.DAY - IntervalDistribution.HOUR) / QUERIES;
+         queries[q] = TimeInterval.ofNanosOfDay(start, start + IntervalDistribution.MINUTE);
+         instants[q] = LocalTime.ofNanoOfDay(start);
+      }
+   }
+
+   @Benchmark
+   public int treeOverlapQuery(){
+      return tree.getOverlappingIntervals(queries[next++ & (QUERIES - 1)], treeBuffer);
+   }
+
+   @Benchmark
+   public int indexOverlapQuery(){
+      return index.getOverlappingIntervals(queries[next++ & (QUERIES - 1)], indexBuffer);
+   }
+
+   @Benchmark
+   public int treeStab(){
+      return tree.stab(instants[next++ & (QUERIES - 1)]).size();
+   }
+
+   @Benchmark
+   public int indexStab(){
+      return index.stab(instants[next++ & (QUERIES - 1)]).size();
+   }
+}
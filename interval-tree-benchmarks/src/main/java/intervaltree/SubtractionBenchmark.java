@@ -0,0 +1,60 @@
+/***************************************************************************
+ * COPYRIGHT (C) 2018, Munish Bhatia.
+ * All rights reserved. This material contains unpublished, copyrighted
+ * work including confidential and proprietary information.
+ ***************************************************************************/
+
+package intervaltree;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+* Measures subtracting one list of 'size' intervals from another with each SubtractionEngine
+* */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class SubtractionBenchmark {
+
+   @Param({"1000", "10000", "100000", "1000000", "10000000"})
+   public int size;
+
+   @Param({"UNIFORM", "CLUSTERED", "NESTED", "IDENTICAL_STARTS"})
+   public String distribution;
+
+   @Param({"INTERVAL_TREE", "SORT_AND_SWEEP", "PARALLEL_SWEEP"})
+   public String engine;
+
+   private List<TimeInterval> subtractFrom, subtractThese;
+   private SubtractionEngine subtractionEngine;
+
+   @Setup
+   public void setUp(){
+      IntervalDistribution shape = IntervalDistribution.valueOf(distribution);
+      subtractFrom = shape.generate(size, 1);
+      subtractThese = shape.generate(size, 2);
+      subtractionEngine = SubtractionEngine.valueOf(engine);
+   }
+
+   @Benchmark
+   public int subtract(){
+      List<TimeInterval> residuals = subtractionEngine.subtract(subtractFrom, subtractThese);
+      return residuals.size();
+   }
+}
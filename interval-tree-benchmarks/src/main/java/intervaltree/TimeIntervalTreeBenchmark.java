@@ -0,0 +1,79 @@
+/***************************************************************************
+ * COPYRIGHT (C) 2018, Munish Bhatia.
+ * All rights reserved. This material contains unpublished, copyrighted
+ * work including confidential and proprietary information.
+ ***************************************************************************/
+
+package intervaltree;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+* Measures read operations on a BalancedTimeIntervalTree: overlap queries and full-tree traversal
+* */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class TimeIntervalTreeBenchmark {
+   //Number of distinct one hour queries cycled through; a power of two
+   private static final int QUERIES = 1024;
+
+   @Param({"1000", "10000", "100000", "1000000", "10000000"})
+   public int size;
+
+   @Param({"UNIFORM", "CLUSTERED", "NESTED", "IDENTICAL_STARTS"})
+   public String distribution;
+
+   //Run with -p metrics=false,true to measure the cost of the tree's metrics
+   @Param({"false"})
+   public boolean metrics;
+
+   private BalancedTimeIntervalTree tree;
+   private TimeInterval[] queries;
+   private final List<BalancedTimeIntervalTreeNode> buffer = new ArrayList<>();
+   private int next = 0;
+
+   @Setup
+   public void setUp(){
+      tree = new BalancedTimeIntervalTree(IntervalDistribution.valueOf(distribution).generate(size, 1));
+      tree.getMetrics().setEnabled(metrics);
+      queries = new TimeInterval[QUERIES];
+      for(int q = 0; q < QUERIES; q++){
+         long start = q * (IntervalDistribution.DAY - IntervalDistribution.HOUR) / QUERIES;
+         queries[q] = TimeInterval.ofNanosOfDay(start, start + IntervalDistribution.HOUR);
+      }
+   }
+
+   @Benchmark
+   public int overlapQuery(){
+      return tree.getOverlappingIntervals(queries[next++ & (QUERIES - 1)], buffer);
+   }
+
+   @Benchmark
+   public int firstOverlap(){
+      return tree.findAnyOverlappingInterval(queries[next++ & (QUERIES - 1)]) != null ? 1 : 0;
+   }
+
+   @Benchmark
+   @OutputTimeUnit(TimeUnit.MICROSECONDS)
+   public int fullTraversal(){
+      return tree.getTreeIntervals().size();
+   }
+}
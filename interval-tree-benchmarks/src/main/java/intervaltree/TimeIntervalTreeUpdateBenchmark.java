@@ -0,0 +1,85 @@
+/***************************************************************************
+ * COPYRIGHT (C) 2018, Munish Bhatia.
+ * All rights reserved. This material contains unpublished, copyrighted
+ * work including confidential and proprietary information.
+ ***************************************************************************/
+
+package intervaltree;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+* Measures insertInterval, deleteInterval and subtract on a BalancedTimeIntervalTree
+* Each iteration rebuilds the tree and times a batch of BATCH operations, so the tree stays the requested size.
+* Run with -prof gc to see the bytes allocated per operation (gc.alloc.rate.norm)
+* */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, batchSize = TimeIntervalTreeUpdateBenchmark.BATCH)
+@Measurement(iterations = 10, batchSize = TimeIntervalTreeUpdateBenchmark.BATCH)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class TimeIntervalTreeUpdateBenchmark {
+   static final int BATCH = 1000;
+
+   @Param({"1000", "10000", "100000", "1000000", "10000000"})
+   public int size;
+
+   @Param({"UNIFORM", "CLUSTERED", "NESTED", "IDENTICAL_STARTS"})
+   public String distribution;
+
+   private List<TimeInterval> intervals;
+   private List<TimeInterval> insertions;
+   private List<TimeInterval> subtractions;
+   private TimeInterval[] deletions = new TimeInterval[BATCH];
+   private BalancedTimeIntervalTree tree;
+   private int next;
+   private int iteration = 0;
+
+   @Setup(Level.Trial)
+   public void generate(){
+      IntervalDistribution shape = IntervalDistribution.valueOf(distribution);
+      intervals = shape.generate(size, 1);
+      insertions = shape.generate(BATCH, 2);
+      subtractions = shape.generate(BATCH, 3);
+   }
+
+   @Setup(Level.Iteration)
+   public void rebuild(){
+      tree = new BalancedTimeIntervalTree(intervals);
+      Random random = new Random(iteration++);
+      for(int d = 0; d < BATCH; d++)
+         deletions[d] = intervals.get(random.nextInt(size));
+      next = 0;
+   }
+
+   @Benchmark
+   public void insert(){
+      tree.insertInterval(insertions.get(next++));
+   }
+
+   @Benchmark
+   public void delete(){
+      tree.deleteInterval(deletions[next++]);
+   }
+
+   @Benchmark
+   public void subtract(){
+      tree.subtract(subtractions.get(next++));
+   }
+}
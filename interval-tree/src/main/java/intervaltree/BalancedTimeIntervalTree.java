@@ -0,0 +1,1071 @@
+/***************************************************************************
+ * COPYRIGHT (C) 2018, Munish Bhatia.
+ * All rights reserved. This material contains unpublished, copyrighted
+ * work including confidential and proprietary information.
+ ***************************************************************************/
+
+package intervaltree;
+
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/*
+* This class models a Balanced Interval Tree
+* Intervals trees are used to represent intervals/ranges
+* And to answer queries of the form "which intervals in the tree overlap with a given interval"
+* Overlap queries only read the tree, so several threads may run them at once; updates, and the first counting query,
+* which builds the end time index, need the tree to themselves
+* */
+class BalancedTimeIntervalTree {
+   private BalancedTimeIntervalTreeNode root = null;
+   private int size = 0;
+   //Set by deleteIntervalUtil when it unlinks a node
+   private boolean removed = false;
+   //Created on first use of getMetrics(); while null or disabled the hot paths only pay for a field check
+   private TimeIntervalTreeMetrics metrics = null;
+   /*End times of every interval, and of zero length intervals alone, for counting queries in O(log n).
+   * Built on the first counting query and kept up to date from then on; bulk rebuilds drop them until needed again*/
+   private SortedLongMultiset endTimes = null, pointTimes = null;
+   /*Nodes unlinked by deletes and subtractions, kept for reuse by inserts and chained through 'left'. Pooling is off
+   * until a capacity is set, because a recycled node no longer holds what an earlier query returned it for*/
+   private BalancedTimeIntervalTreeNode nodePool = null;
+   private int pooledNodes = 0, nodePoolCapacity = 0;
+   //Reused by subtract: fragments of the current node, the intervals to re-insert, and removeLast's result
+   private final SubtractionFragments fragments = new SubtractionFragments();
+   private final List<TimeInterval> carried = new ArrayList<>(2);
+   private BalancedTimeIntervalTreeNode lastRemoved = null;
+
+   //Creates an empty Interval Tree
+   BalancedTimeIntervalTree() {
+   }
+
+   /*Creates a perfectly balanced Interval Tree holding 'intervals' in one bottom-up pass, O(n)
+   * Input that is not already sorted by start time is sorted once first*/
+   BalancedTimeIntervalTree(List<TimeInterval> intervals) {
+      List<TimeInterval> sorted = sortedByStart(intervals);
+      root = buildBalancedTree(sorted);
+      size = sorted.size();
+   }
+
+   //Returns this tree's metrics, created disabled on first call; enable them and register them with JMX through the returned object
+   TimeIntervalTreeMetrics getMetrics(){
+      if(metrics == null)
+         metrics = new TimeIntervalTreeMetrics(this);
+      return metrics;
+   }
+
+   //Root of the tree, null when empty; the nodes must not be modified through it
+   BalancedTimeIntervalTreeNode getRoot(){
+      return root;
+   }
+
+   /*Keeps up to 'capacity' unlinked nodes for reuse by later inserts, sparing their allocation; 0 turns pooling off.
+   * Only enable it when callers do not hold on to nodes returned by queries across deletes or subtractions*/
+   void setNodePoolCapacity(int capacity){
+      if(capacity < 0)
+         throw new IllegalArgumentException("Node Pool Capacity Cannot be Negative.");
+      nodePoolCapacity = capacity;
+      while(pooledNodes > capacity){
+         nodePool = nodePool.left;
+         pooledNodes--;
+      }
+   }
+
+   //Hands out a node for 'i', from the pool when it has one
+   private BalancedTimeIntervalTreeNode newNode(TimeInterval i){
+      if(nodePool == null)
+         return new BalancedTimeIntervalTreeNode(i);
+      BalancedTimeIntervalTreeNode node = nodePool;
+      nodePool = node.left;
+      pooledNodes--;
+      return node.reset(i);
+   }
+
+   //Returns an unlinked node to the pool, if pooling is on and the pool has room
+   private void recycle(BalancedTimeIntervalTreeNode node){
+      if(pooledNodes >= nodePoolCapacity)
+         return;
+      node.interval = null;
+      node.right = null;
+      node.left = nodePool;
+      nodePool = node;
+      pooledNodes++;
+   }
+
+   //Number of intervals held by the tree
+   int size(){
+      return size;
+   }
+
+   //Height of the tree; an empty tree has height 0
+   int height(){
+      return root != null ? root.height : 0;
+   }
+
+   //Inserts a collection of Time Intervals to this Interval Tree
+   public BalancedTimeIntervalTreeNode insertIntervals(TimeInterval... intervals){
+      //An empty tree is bulk loaded instead of being built one rebalancing insert at a time
+      if(root == null && intervals.length > 1){
+         List<TimeInterval> sorted = sortedByStart(Arrays.asList(intervals));
+         root = buildBalancedTree(sorted);
+         size = sorted.size();
+         endTimes = pointTimes = null;
+         return root;
+      }
+      for (TimeInterval interval:intervals)
+         root = insertInterval(interval);
+      return root;
+   }
+
+   /*Merges a batch of intervals into this tree.
+   * Large batches are merged with the in-order tree contents in a linear pass and the tree is rebuilt balanced, O(n+m);
+   * batches too small to pay for the rebuild are inserted one at a time, O(m log n)*/
+   public BalancedTimeIntervalTreeNode mergeIntervals(List<TimeInterval> batch){
+      List<TimeInterval> sortedBatch = sortedByStart(batch);
+      if(sortedBatch.isEmpty())
+         return root;
+
+      //Decided from the size field, so a small batch never pays for flattening the tree
+      int n = size, m = sortedBatch.size();
+      if((long) m * (32 - Integer.numberOfLeadingZeros(n + 1)) < n + m){
+         for(TimeInterval interval:sortedBatch)
+            root = insertInterval(interval);
+         return root;
+      }
+
+      List<BalancedTimeIntervalTreeNode> existing = new ArrayList<>(n);
+      forEachInorder(root, existing::add);
+
+      //Merge by start time, existing intervals first on ties, reusing the existing node objects
+      BalancedTimeIntervalTreeNode[] merged = new BalancedTimeIntervalTreeNode[n + m];
+      int i = 0, j = 0, k = 0;
+      while(i < n || j < m){
+         if(j == m || (i < n && existing.get(i).interval.compareTo(sortedBatch.get(j)) <= 0))
+            merged[k++] = existing.get(i++);
+         else
+            merged[k++] = newNode(sortedBatch.get(j++));
+      }
+      root = linkBalancedTree(merged, 0, merged.length - 1);
+      size = n + m;
+      endTimes = pointTimes = null;
+      return root;
+   }
+
+   //Returns the non null intervals of 'intervals' sorted by start time, sorting only if they are not already in order
+   private static List<TimeInterval> sortedByStart(List<TimeInterval> intervals){
+      List<TimeInterval> sorted = new ArrayList<>(intervals == null ? 0 : intervals.size());
+      if(intervals == null)
+         return sorted;
+      boolean inOrder = true;
+      for(TimeInterval interval:intervals){
+         if(interval == null)
+            continue;
+         if(!sorted.isEmpty() && interval.compareTo(sorted.get(sorted.size() - 1)) < 0)
+            inOrder = false;
+         sorted.add(interval);
+      }
+      if(!inOrder)
+         sorted.sort(TimeInterval::compareTo);
+      return sorted;
+   }
+
+   //Builds a balanced subtree from intervals sorted by start time
+   private static BalancedTimeIntervalTreeNode buildBalancedTree(List<TimeInterval> sorted){
+      BalancedTimeIntervalTreeNode[] nodes = new BalancedTimeIntervalTreeNode[sorted.size()];
+      for(int i = 0; i < nodes.length; i++)
+         nodes[i] = new BalancedTimeIntervalTreeNode(sorted.get(i));
+      return linkBalancedTree(nodes, 0, nodes.length - 1);
+   }
+
+   /*Links nodes[lo..hi], sorted by start time, into a balanced subtree rooted at the middle node
+   * Children are linked first so height and max are computed bottom-up in the same pass*/
+   private static BalancedTimeIntervalTreeNode linkBalancedTree(BalancedTimeIntervalTreeNode[] nodes, int lo, int hi){
+      if(lo > hi)
+         return null;
+      int mid = (lo + hi) >>> 1;
+      BalancedTimeIntervalTreeNode node = nodes[mid];
+      node.left = linkBalancedTree(nodes, lo, mid - 1);
+      node.right = linkBalancedTree(nodes, mid + 1, hi);
+      updateNode(node);
+      return node;
+   }
+
+
+   //Inserts a single time interval to the interval tree
+   public BalancedTimeIntervalTreeNode insertInterval(TimeInterval i){
+      if(null == i)
+         return root;
+      boolean timed = metrics != null && metrics.enabled;
+      long startNanos = timed ? System.nanoTime() : 0L;
+
+      addInterval(i);
+
+      if(timed)
+         metrics.insertLatency.record(System.nanoTime() - startNanos);
+      return root;
+   }
+
+   //Inserts 'i' without recording an insert, for use inside operations that are timed as a whole
+   private void addInterval(TimeInterval i){
+      root = insertIntervalUtil(root, i);
+      size++;
+      indexEndTime(i);
+   }
+
+   //Util method to perform interval insertion
+   private BalancedTimeIntervalTreeNode insertIntervalUtil(BalancedTimeIntervalTreeNode root, TimeInterval i){
+      //Base Case: Empty SubTree
+      if(root == null){
+         root = newNode(i);
+         return root;
+      }
+
+      //Determine which side of the root does this node belong to
+      if(i.compareTo(root.interval) <= 0)
+         root.left = insertIntervalUtil(root.left, i);
+      else
+         root.right = insertIntervalUtil(root.right, i);
+
+      //Update Max Value of this node if needed
+      if(root.max.isBefore(i.end))
+         root.max = i.end;
+
+      //Update height of this node if needed
+      int leftHeight = root.left!=null?root.left.height:0;
+      int rightHeight = root.right!=null?root.right.height:0;
+      root.height = Math.max(leftHeight, rightHeight) + 1;
+      root.size++;
+      root.updateGaps();
+
+      //Check Balance Factor of Root
+      int BalanceFactor = leftHeight - rightHeight;
+
+      //If -1 > BalanceFactor > 1, this node is unbalanced
+      //Left-Left Case:
+      if(BalanceFactor > 1 && i.compareTo(root.left.interval) <= 0)
+         return rightRotate(root);
+
+      //Left-Right Case:
+      if(BalanceFactor > 1 && i.compareTo(root.left.interval) > 0){
+         root.left = leftRotate(root.left);
+         return rightRotate(root);
+      }
+
+      //Right-Right Case:
+      if(BalanceFactor < -1 && i.compareTo(root.right.interval) > 0)
+         return leftRotate(root);
+
+      //Right-Left Case:
+      if(BalanceFactor < -1 && i.compareTo(root.right.interval) <= 0){
+         root.right = rightRotate(root.right);
+         return leftRotate(root);
+      }
+
+      return root;
+   }
+
+   //Deletes a given time interval from the interval tree
+   public BalancedTimeIntervalTreeNode deleteInterval(TimeInterval key){
+      if(root == null || key == null)
+         return root;
+      boolean timed = metrics != null && metrics.enabled;
+      long startNanos = timed ? System.nanoTime() : 0L;
+
+      removed = false;
+      root = deleteIntervalUtil(root, key);
+      if(removed){
+         size--;
+         unindexEndTime(key);
+      }
+
+      if(timed)
+         metrics.deleteLatency.record(System.nanoTime() - startNanos);
+      return root;
+   }
+
+   //Util method to perform interval deletion
+   private BalancedTimeIntervalTreeNode deleteIntervalUtil(BalancedTimeIntervalTreeNode root, TimeInterval key) {
+      //Base Case: Empty Node Encountered; Interval Does Not Exist In Tree
+      if(root == null)
+         return root;
+
+      //This is the node to be deleted
+      if(root.interval.equals(key)){
+         //Base Case (0): Root is a leaf
+         if(isLeafNode(root)){
+            removed = true;
+            recycle(root);
+            return null;
+         }
+         //Case 1: Root has no right sub-tree
+         else if(!isLeafNode(root) && root.right == null){
+            removed = true;
+            BalancedTimeIntervalTreeNode child = root.left;
+            recycle(root);
+            root = child;
+         }
+         else if(!isLeafNode(root) && root.left == null){
+            removed = true;
+            BalancedTimeIntervalTreeNode child = root.right;
+            recycle(root);
+            root = child;
+         }
+            //Case 2: Root has right sub-tree
+         else{
+            //1a. Find, Remove and Return Leftmost node in the curr node's right subtree:
+            BalancedTimeIntervalTreeNode successor;
+            successor = getSuccessorNode(root.right);
+            root.interval = successor.interval;
+            root.right = deleteIntervalUtil(root.right, successor.interval);
+         }
+      }
+
+      else if(key.compareTo(root.interval) < 0) //Recurse on left subtree
+         root.left = deleteIntervalUtil(root.left, key);
+      else if(key.compareTo(root.interval) > 0) //Recurse on right subtree
+         root.right = deleteIntervalUtil(root.right, key);
+      //Same start time: rotations can leave such intervals on either side of this node
+      else if(containsInterval(root.left, key))
+         root.left = deleteIntervalUtil(root.left, key);
+      else
+         root.right = deleteIntervalUtil(root.right, key);
+
+      //Adjust max if needed
+      root.max = TimeInterval.max(root.interval.end, TimeInterval.max(root.left != null?root.left.max:LocalTime.MIN, root.right!=null?root.right.max:LocalTime.MIN));
+
+      //Update Height, Size and Gap Metadata of the current Node:
+      int leftHeight = root.left!=null?root.left.height:0;
+      int rightHeight = root.right!=null?root.right.height:0;
+      root.height = Math.max(leftHeight, rightHeight) + 1;
+      root.size = (root.left!=null?root.left.size:0) + (root.right!=null?root.right.size:0) + 1;
+      root.updateGaps();
+
+      //Check Node Balance
+      int BalanceFactor = leftHeight - rightHeight;
+
+      //Left Left Case:
+      if(BalanceFactor > 1 && getBalanceFactor(root.left) >= 0)
+         return rightRotate(root);
+
+      //Left Right Case:
+      if(BalanceFactor > 1 && getBalanceFactor(root.left) < 0){
+         root.left = leftRotate(root.left);
+         return rightRotate(root);
+      }
+
+      //Right Right Case:
+      if(BalanceFactor < -1 && getBalanceFactor(root.right) <= 0)
+         return leftRotate(root);
+
+      //Right Left Case:
+      if(BalanceFactor < -1 && getBalanceFactor(root.right) > 0){
+         root.right = rightRotate(root.right);
+         return leftRotate(root);
+      }
+
+      return root;
+   }
+
+   /*Subtracts time interval 'op' from every interval in the tree in a single traversal
+   * Overlapping nodes are trimmed in place, removed, or split, and the tree is rebalanced on the way back up.
+   * Only the second half of a split node (and zero length intervals at op.start) needs a fresh insert afterwards*/
+   public BalancedTimeIntervalTreeNode subtract(TimeInterval op){
+      if(root == null || op == null)
+         return root;
+      boolean timed = metrics != null && metrics.enabled;
+      long startNanos = timed ? System.nanoTime() : 0L;
+
+      carried.clear();
+      root = subtractUtil(root, op);
+      //Re-inserted untimed, so the subtraction shows up in subtractLatency alone
+      for(int c = 0; c < carried.size(); c++)
+         addInterval(carried.get(c));
+      carried.clear();
+
+      if(timed)
+         metrics.subtractLatency.record(System.nanoTime() - startNanos);
+      return root;
+   }
+
+   /*Util method to perform subtraction on a subtree, returns the new subtree root
+   * Trimming moves an interval's start to op.end only when it started within op, and every other interval starting
+   * within op is removed, so in-order start time order is preserved. The one exception, a zero length interval at
+   * op.start, is lifted out into 'carried' and re-inserted*/
+   private BalancedTimeIntervalTreeNode subtractUtil(BalancedTimeIntervalTreeNode root, TimeInterval op){
+      if(root == null)
+         return null;
+
+      //Children are pruned exactly like an overlap query, using the bounds from before any trimming
+      BalancedTimeIntervalTreeNode left = root.left, right = root.right;
+      if(left != null && !left.max.isBefore(op.start))
+         left = subtractUtil(left, op);
+      if(right != null && root.interval.start.isBefore(op.end))
+         right = subtractUtil(right, op);
+
+      if(TimeInterval.doOverlap(root.interval, op)){
+         //Keep the first fragment in this node, carry the second (if any) to be inserted later
+         fragments.count = 0;
+         root.interval.subtractInterval(op, fragments);
+         unindexEndTime(root.interval);
+         if(fragments.count == 0){
+            size--;
+            recycle(root);
+            return join(left, right);
+         }
+         root.interval = new TimeInterval(fragments.keptStart, fragments.keptEnd);
+         indexEndTime(root.interval);
+         if(fragments.count == 2)
+            carried.add(new TimeInterval(fragments.carriedStart, fragments.carriedEnd));
+      }
+      else if(root.interval.start.equals(op.start) && root.interval.end.equals(op.start) && op.start.isBefore(op.end)){
+         carried.add(root.interval);
+         unindexEndTime(root.interval);
+         size--;
+         recycle(root);
+         return join(left, right);
+      }
+      return join(left, root, right);
+   }
+
+   /*Joins two balanced subtrees through 'node', every interval in 'left' starting no later than node and every interval
+   * in 'right' no sooner. Runs in time proportional to the height difference of the subtrees*/
+   private BalancedTimeIntervalTreeNode join(BalancedTimeIntervalTreeNode left, BalancedTimeIntervalTreeNode node, BalancedTimeIntervalTreeNode right){
+      int leftHeight = left!=null?left.height:0;
+      int rightHeight = right!=null?right.height:0;
+      if(leftHeight > rightHeight + 1){
+         left.right = join(left.right, node, right);
+         return rebalance(left);
+      }
+      if(rightHeight > leftHeight + 1){
+         right.left = join(left, node, right.left);
+         return rebalance(right);
+      }
+      node.left = left;
+      node.right = right;
+      updateNode(node);
+      return node;
+   }
+
+   //Joins two balanced subtrees, every interval in 'left' starting no later than those in 'right'
+   private BalancedTimeIntervalTreeNode join(BalancedTimeIntervalTreeNode left, BalancedTimeIntervalTreeNode right){
+      if(left == null)
+         return right;
+      if(right == null)
+         return left;
+      left = removeLast(left);
+      BalancedTimeIntervalTreeNode last = lastRemoved;
+      lastRemoved = null;
+      return join(left, last, right);
+   }
+
+   //Removes the rightmost node of a subtree into 'lastRemoved', returns the rebalanced subtree
+   private BalancedTimeIntervalTreeNode removeLast(BalancedTimeIntervalTreeNode root){
+      if(root.right == null){
+         lastRemoved = root;
+         return root.left;
+      }
+      root.right = removeLast(root.right);
+      return rebalance(root);
+   }
+
+   //Recomputes height, size, max and gap metadata of a node from its children, then restores the AVL property at the node
+   private BalancedTimeIntervalTreeNode rebalance(BalancedTimeIntervalTreeNode root){
+      updateNode(root);
+      int leftHeight = root.left!=null?root.left.height:0;
+      int rightHeight = root.right!=null?root.right.height:0;
+      int BalanceFactor = leftHeight - rightHeight;
+
+      //Left Left and Left Right Cases
+      if(BalanceFactor > 1){
+         if(getBalanceFactor(root.left) < 0)
+            root.left = leftRotate(root.left);
+         return rightRotate(root);
+      }
+
+      //Right Right and Right Left Cases
+      if(BalanceFactor < -1){
+         if(getBalanceFactor(root.right) > 0)
+            root.right = rightRotate(root.right);
+         return leftRotate(root);
+      }
+      return root;
+   }
+
+   //Performs Left Rotation of a Tree Node, counting it when metrics are enabled
+   private BalancedTimeIntervalTreeNode leftRotate(BalancedTimeIntervalTreeNode node){
+      if(metrics != null && metrics.enabled)
+         metrics.rotations.increment();
+      return node.leftRotate();
+   }
+
+   //Performs Right Rotation of a Tree Node, counting it when metrics are enabled
+   private BalancedTimeIntervalTreeNode rightRotate(BalancedTimeIntervalTreeNode node){
+      if(metrics != null && metrics.enabled)
+         metrics.rotations.increment();
+      return node.rightRotate();
+   }
+
+   //Recomputes height, size, max and gap metadata of a node from its children
+   private static void updateNode(BalancedTimeIntervalTreeNode node){
+      int leftHeight = node.left!=null?node.left.height:0;
+      int rightHeight = node.right!=null?node.right.height:0;
+      node.height = Math.max(leftHeight, rightHeight) + 1;
+      node.size = (node.left!=null?node.left.size:0) + (node.right!=null?node.right.size:0) + 1;
+      node.max = TimeInterval.max(node.interval.end, TimeInterval.max(node.left!=null?node.left.max:LocalTime.MIN, node.right!=null?node.right.max:LocalTime.MIN));
+      node.updateGaps();
+   }
+
+   //Checks if the subtree rooted at 'root' holds time interval 'key'
+   private boolean containsInterval(BalancedTimeIntervalTreeNode root, TimeInterval key) {
+      if(root == null)
+         return false;
+      if(root.interval.equals(key))
+         return true;
+      int comparison = key.compareTo(root.interval);
+      return (comparison <= 0 && containsInterval(root.left, key)) || (comparison >= 0 && containsInterval(root.right, key));
+   }
+
+   /*Gets the Balance Factor (difference in heights of left and right subtrees) of a node
+   * A leaf node has a height of 1*/
+   private static int getBalanceFactor(BalancedTimeIntervalTreeNode node) {
+      if(node == null)
+         return 0;
+      int leftHeight = node.left!=null?node.left.height:0;
+      int rightHeight = node.right!=null?node.right.height:0;
+
+      return leftHeight-rightHeight;
+   }
+
+   //Fetches the time intervals in the interval tree which overlap with the provided time interval 'key'
+   List<BalancedTimeIntervalTreeNode> getOverlappingIntervals(TimeInterval key){
+      List<BalancedTimeIntervalTreeNode> overlappingIntervals = new ArrayList<>();
+      getOverlappingIntervals(key, overlappingIntervals);
+      return overlappingIntervals;
+   }
+
+   /*Fetches the time intervals overlapping with 'key' into a caller supplied buffer, which is cleared first.
+   * Reusing the same buffer across queries makes them allocation free once it has grown to size*/
+   int getOverlappingIntervals(TimeInterval key, List<BalancedTimeIntervalTreeNode> result){
+      result.clear();
+      boolean timed = metrics != null && metrics.enabled;
+      long startNanos = timed ? System.nanoTime() : 0L;
+      int examined = 0;
+
+      BalancedTimeIntervalTreeNode[] stack = acquireStack();
+      try{
+         int top = pushRoot(stack, key);
+         while(top > 0){
+            BalancedTimeIntervalTreeNode node = stack[--top];
+            examined++;
+            if(TimeInterval.doOverlap(node.interval, key))
+               result.add(node);
+            top = pushOverlapCandidates(stack, top, node, key);
+         }
+      }
+      finally{
+         releaseStack(stack);
+      }
+
+      if(timed)
+         metrics.recordQuery(System.nanoTime() - startNanos, examined, result.size());
+      return result.size();
+   }
+
+   //Returns the first overlapping node found, or null, stopping the search at the first hit
+   BalancedTimeIntervalTreeNode findAnyOverlappingInterval(TimeInterval key){
+      boolean timed = metrics != null && metrics.enabled;
+      long startNanos = timed ? System.nanoTime() : 0L;
+      int examined = 0;
+      BalancedTimeIntervalTreeNode found = null;
+
+      BalancedTimeIntervalTreeNode[] stack = acquireStack();
+      try{
+         int top = pushRoot(stack, key);
+         while(top > 0){
+            BalancedTimeIntervalTreeNode node = stack[--top];
+            examined++;
+            if(TimeInterval.doOverlap(node.interval, key)){
+               found = node;
+               break;
+            }
+            top = pushOverlapCandidates(stack, top, node, key);
+         }
+      }
+      finally{
+         releaseStack(stack);
+      }
+
+      if(timed)
+         metrics.recordQuery(System.nanoTime() - startNanos, examined, found != null ? 1 : 0);
+      return found;
+   }
+
+   /*Passes each node overlapping with 'key' to 'visitor' until the visitor returns false
+   * Returns the number of nodes passed to the visitor. Iterative, with a stack reused across queries*/
+   int visitOverlappingIntervals(TimeInterval key, TimeIntervalVisitor visitor){
+      boolean timed = metrics != null && metrics.enabled;
+      long startNanos = timed ? System.nanoTime() : 0L;
+      int examined = 0;
+
+      BalancedTimeIntervalTreeNode[] stack = acquireStack();
+      int visited = 0;
+      try{
+         int top = pushRoot(stack, key);
+         while(top > 0){
+            BalancedTimeIntervalTreeNode node = stack[--top];
+            examined++;
+            if(TimeInterval.doOverlap(node.interval, key)){
+               visited++;
+               if(!visitor.visit(node))
+                  break;
+            }
+            top = pushOverlapCandidates(stack, top, node, key);
+         }
+      }
+      finally{
+         releaseStack(stack);
+      }
+
+      if(timed)
+         metrics.recordQuery(System.nanoTime() - startNanos, examined, visited);
+      return visited;
+   }
+
+   /*Returns a Spliterator over the nodes overlapping with 'key'.
+   * It splits by handing off pending subtrees, so it can back a parallel stream. The tree must not be modified while it is in use*/
+   Spliterator<BalancedTimeIntervalTreeNode> overlappingSpliterator(TimeInterval key){
+      return new OverlapSpliterator(root, key);
+   }
+
+   //Returns an Iterator over the nodes overlapping with 'key'. The tree must not be modified while it is in use
+   Iterator<BalancedTimeIntervalTreeNode> overlappingIterator(TimeInterval key){
+      return Spliterators.iterator(overlappingSpliterator(key));
+   }
+
+   //Returns a (possibly parallel) stream of the nodes overlapping with 'key'. The tree must not be modified while it is in use
+   Stream<BalancedTimeIntervalTreeNode> overlappingIntervals(TimeInterval key, boolean parallel){
+      return StreamSupport.stream(overlappingSpliterator(key), parallel);
+   }
+
+   //Pushes the root for an overlap search on 'key', returns the new stack top
+   private int pushRoot(BalancedTimeIntervalTreeNode[] stack, TimeInterval key){
+      if(root == null || key == null)
+         return 0;
+      stack[0] = root;
+      return 1;
+   }
+
+   /*Pushes the children of 'node' that may hold intervals overlapping with 'key', returns the new stack top
+   * Right is pushed before left so at most one pending sibling per level sits on the stack: height + 1 slots suffice*/
+   private static int pushOverlapCandidates(BalancedTimeIntervalTreeNode[] stack, int top, BalancedTimeIntervalTreeNode node, TimeInterval key){
+      //Right subtree intervals start no sooner than this node, so they can only overlap if this node starts before the key ends
+      if(node.right != null && node.interval.start.isBefore(key.end))
+         stack[top++] = node.right;
+      //Left subtree can only hold overlaps if some interval in it ends after the key starts
+      if(node.left != null && node.left.max.isAfter(key.start))
+         stack[top++] = node.left;
+      return top;
+   }
+
+   /*Traversal stacks kept between queries, one per thread, so concurrent readers never share one.
+   * A query started from inside a visitor finds its thread's stack in use and gets a fresh one*/
+   private static final ThreadLocal<TraversalStack> TRAVERSAL_STACKS = ThreadLocal.withInitial(TraversalStack::new);
+
+   private static final class TraversalStack {
+      BalancedTimeIntervalTreeNode[] nodes = new BalancedTimeIntervalTreeNode[16];
+      boolean inUse = false;
+   }
+
+   private BalancedTimeIntervalTreeNode[] acquireStack(){
+      int required = (root != null ? root.height : 0) + 1;
+      TraversalStack traversalStack = TRAVERSAL_STACKS.get();
+      if(traversalStack.inUse)
+         return new BalancedTimeIntervalTreeNode[required];
+      if(traversalStack.nodes.length < required)
+         traversalStack.nodes = new BalancedTimeIntervalTreeNode[Math.max(required, traversalStack.nodes.length * 2)];
+      traversalStack.inUse = true;
+      return traversalStack.nodes;
+   }
+
+   private static void releaseStack(BalancedTimeIntervalTreeNode[] stack){
+      TraversalStack traversalStack = TRAVERSAL_STACKS.get();
+      if(stack != traversalStack.nodes)
+         return;
+      Arrays.fill(stack, null);
+      traversalStack.inUse = false;
+   }
+
+   /*
+   * Spliterator over the nodes of a subtree that overlap with a key
+   * Pending subtrees sit on an explicit stack; trySplit hands the oldest (largest) pending subtree to a new Spliterator
+   * */
+   private static class OverlapSpliterator implements Spliterator<BalancedTimeIntervalTreeNode> {
+      private final TimeInterval key;
+      private BalancedTimeIntervalTreeNode[] stack;
+      private int bottom = 0, top = 0;
+
+      OverlapSpliterator(BalancedTimeIntervalTreeNode root, TimeInterval key) {
+         this.key = key;
+         this.stack = new BalancedTimeIntervalTreeNode[(root != null ? root.height : 0) + 1];
+         if(root != null && key != null)
+            stack[top++] = root;
+      }
+
+      @Override
+      public boolean tryAdvance(Consumer<? super BalancedTimeIntervalTreeNode> action){
+         while(top > bottom){
+            BalancedTimeIntervalTreeNode node = stack[--top];
+            stack[top] = null;
+            if(top + 2 > stack.length)
+               stack = Arrays.copyOf(stack, stack.length * 2);
+            top = pushOverlapCandidates(stack, top, node, key);
+            if(TimeInterval.doOverlap(node.interval, key)){
+               action.accept(node);
+               return true;
+            }
+         }
+         return false;
+      }
+
+      @Override
+      public Spliterator<BalancedTimeIntervalTreeNode> trySplit(){
+         if(top - bottom < 2)
+            return null;
+         BalancedTimeIntervalTreeNode pending = stack[bottom];
+         stack[bottom++] = null;
+         return new OverlapSpliterator(pending, key);
+      }
+
+      @Override
+      public long estimateSize(){
+         long estimate = 0;
+         for(int i = bottom; i < top; i++)
+            estimate += (1L << stack[i].height) - 1;
+         return estimate;
+      }
+
+      @Override
+      public int characteristics(){
+         return Spliterator.NONNULL | Spliterator.DISTINCT;
+      }
+   }
+
+   /*Counts the intervals overlapping with 'key' in O(log n), without visiting them
+   * An interval overlaps a proper key iff it starts before the key ends and does not end by the time the key starts;
+   * those ending by then all start before the key ends too, so the count is a difference of two ranks.
+   * A zero length key at p additionally must not count zero length intervals at p, which end at p but start at p*/
+   int countOverlapping(TimeInterval key){
+      if(root == null || key == null)
+         return 0;
+      long keyStart = key.startNanos(), keyEnd = key.endNanos();
+      int count = rankNanos(keyEnd) - endTimes().countAtMost(keyStart);
+      if(keyStart == keyEnd)
+         count += pointTimes.countAtMost(keyStart) - pointTimes.countBelow(keyStart);
+      return count;
+   }
+
+   /*Counts the intervals containing instant 't' in O(log n); an interval holds the instants from its start up to, but
+   * excluding, its end, so back to back intervals are never both counted and zero length intervals hold no instant*/
+   int countStabbing(LocalTime t){
+      if(root == null || t == null)
+         return 0;
+      long nanos = t.toNanoOfDay();
+      return (nanos == LocalTime.MAX.toNanoOfDay() ? size : rankNanos(nanos + 1)) - endTimes().countAtMost(nanos);
+   }
+
+   //Fetches the intervals containing instant 't', i.e. starting at or before it and ending after it
+   List<BalancedTimeIntervalTreeNode> stab(LocalTime t){
+      List<BalancedTimeIntervalTreeNode> containing = new ArrayList<>();
+      if(t == null)
+         return containing;
+      BalancedTimeIntervalTreeNode[] stack = acquireStack();
+      try{
+         int top = 0;
+         if(root != null)
+            stack[top++] = root;
+         while(top > 0){
+            BalancedTimeIntervalTreeNode node = stack[--top];
+            if(!node.interval.start.isAfter(t) && node.interval.end.isAfter(t))
+               containing.add(node);
+            if(node.right != null && !node.interval.start.isAfter(t))
+               stack[top++] = node.right;
+            if(node.left != null && node.left.max.isAfter(t))
+               stack[top++] = node.left;
+         }
+      }
+      finally{
+         releaseStack(stack);
+      }
+      return containing;
+   }
+
+   /*Finds the earliest free window of at least 'minLength' starting at or after 'after', where free means overlapping no
+   * interval in the tree. Returns the whole free stretch from its start up to the next interval's start (or the end of
+   * the day), or null if there is none. Subtrees that are wholly covered or hold no long enough gap are skipped using
+   * their gap metadata, which takes O(log n) unless long intervals hide many gaps of subtrees starting after them*/
+   TimeInterval findFirstGap(LocalTime after, Duration minLength){
+      if(after == null || minLength == null || minLength.isNegative())
+         throw new IllegalArgumentException("Gap Search Needs a Start Time and a Non Negative Length.");
+      GapSearch search = new GapSearch(after.toNanoOfDay(), LocalTime.MAX.toNanoOfDay(), Math.max(1, minLength.toNanos()), true);
+      search.visit(root);
+      search.finish();
+      return search.gaps.isEmpty() ? null : search.gaps.get(0);
+   }
+
+   //Finds every free stretch of positive length within 'window', clipped to it, in time order; O(log n + gaps) for typical schedules
+   List<TimeInterval> findAllGaps(TimeInterval window){
+      if(window == null)
+         return new ArrayList<>();
+      GapSearch search = new GapSearch(window.startNanos(), window.endNanos(), 1, false);
+      search.visit(root);
+      search.finish();
+      return search.gaps;
+   }
+
+   //Collects the fragments subtractInterval leaves of one node: the first is kept in place, the second carried
+   private static final class SubtractionFragments implements IntervalFragmentSink {
+      LocalTime keptStart, keptEnd, carriedStart, carriedEnd;
+      int count;
+
+      @Override
+      public void accept(LocalTime start, LocalTime end){
+         if(count++ == 0){
+            keptStart = start;
+            keptEnd = end;
+         }
+         else {
+            carriedStart = start;
+            carriedEnd = end;
+         }
+      }
+   }
+
+   /*
+   * State of a gap search, a walk of the intervals in start order which tracks how far coverage reaches ('covered')
+   * and records the free stretches of at least 'minLength' before 'limit'
+   * */
+   private static final class GapSearch {
+      final long limit, minLength;
+      final boolean firstOnly;
+      final List<TimeInterval> gaps = new ArrayList<>();
+      long covered;
+      //'found' ends a first-only search, 'passedLimit' stops the walk once intervals start at or after the limit
+      boolean found, passedLimit;
+
+      GapSearch(long from, long limit, long minLength, boolean firstOnly){
+         this.covered = from;
+         this.limit = limit;
+         this.minLength = minLength;
+         this.firstOnly = firstOnly;
+      }
+
+      void visit(BalancedTimeIntervalTreeNode node){
+         if(node == null || found || passedLimit || node.minStart.toNanoOfDay() >= limit)
+            return;
+         long subtreeMax = node.max.toNanoOfDay();
+         //Wholly covered already, or nothing long enough inside: only the coverage moves on
+         if(subtreeMax <= covered)
+            return;
+         if(node.minStart.toNanoOfDay() - covered < minLength && node.maxGap < minLength){
+            covered = subtreeMax;
+            return;
+         }
+         visit(node.left);
+         if(found || passedLimit)
+            return;
+         long start = node.interval.startNanos();
+         if(start >= limit){
+            passedLimit = true;
+            return;
+         }
+         record(start);
+         covered = Math.max(covered, node.interval.endNanos());
+         visit(node.right);
+      }
+
+      //Records the free stretch from the current coverage up to 'end', if it is long enough
+      private void record(long end){
+         if(found || end - covered < minLength)
+            return;
+         gaps.add(TimeInterval.ofNanosOfDay(covered, end));
+         found = firstOnly;
+      }
+
+      //Records the free stretch left between the last interval and the limit
+      void finish(){
+         record(limit);
+      }
+   }
+
+   //Number of intervals starting before 't', which is also the position 'select' would find an interval starting at 't'
+   int rank(LocalTime t){
+      return t == null ? 0 : rankNanos(t.toNanoOfDay());
+   }
+
+   //Returns the node holding the interval at position 'k' (from 0) in order of start time
+   BalancedTimeIntervalTreeNode select(int k){
+      if(k < 0 || k >= size)
+         throw new IllegalArgumentException("Rank " + k + " Is Out Of Range For a Tree of Size " + size + ".");
+      BalancedTimeIntervalTreeNode node = root;
+      while(true){
+         int leftSize = node.left!=null?node.left.size:0;
+         if(k < leftSize)
+            node = node.left;
+         else if(k == leftSize)
+            return node;
+         else {
+            k -= leftSize + 1;
+            node = node.right;
+         }
+      }
+   }
+
+   //Number of intervals starting strictly before 'nanos' (nanos-of-day)
+   private int rankNanos(long nanos){
+      int below = 0;
+      BalancedTimeIntervalTreeNode node = root;
+      while(node != null){
+         if(node.interval.startNanos() < nanos){
+            below += (node.left!=null?node.left.size:0) + 1;
+            node = node.right;
+         }
+         else
+            node = node.left;
+      }
+      return below;
+   }
+
+   //Returns the end time index, building it from the tree contents on first use
+   private SortedLongMultiset endTimes(){
+      if(endTimes == null){
+         SortedLongMultiset ends = new SortedLongMultiset(), points = new SortedLongMultiset();
+         forEachInorder(root, node -> {
+            ends.add(node.interval.endNanos());
+            if(node.interval.start.equals(node.interval.end))
+               points.add(node.interval.endNanos());
+         });
+         endTimes = ends;
+         pointTimes = points;
+      }
+      return endTimes;
+   }
+
+   private void indexEndTime(TimeInterval i){
+      if(endTimes == null)
+         return;
+      endTimes.add(i.endNanos());
+      if(i.start.equals(i.end))
+         pointTimes.add(i.endNanos());
+   }
+
+   private void unindexEndTime(TimeInterval i){
+      if(endTimes == null)
+         return;
+      endTimes.remove(i.endNanos());
+      if(i.start.equals(i.end))
+         pointTimes.remove(i.endNanos());
+   }
+
+   //Returns In-order successor of a tree node. This is the leftmost node in the right subtree of a node
+   private BalancedTimeIntervalTreeNode getSuccessorNode(BalancedTimeIntervalTreeNode root) {
+      if(null == root)
+         return null;
+      BalancedTimeIntervalTreeNode curr = root, successor;
+      while (curr.left != null)
+         curr = curr.left;
+      successor = curr;
+      return successor;
+   }
+
+   //Checks if a given tree node is a leaf
+   private boolean isLeafNode(BalancedTimeIntervalTreeNode root) {
+      return (root == null || (root.left == null && root.right == null));
+   }
+
+   //Prints both In-order and Pre-order traversals of the Interval Tree
+   void printTree(){
+      printTreeInorder();
+      printTreePreOrder();
+   }
+
+   void printTreeInorder(){
+      if(root == null){
+         System.out.println("Tree is Empty...");
+         return;
+      }
+      System.out.println("Inorder Tree Traversal:");
+      printTreeInorderUtil(root);
+   }
+
+   //Prints Inorder Tree Traversal
+   private void printTreeInorderUtil(BalancedTimeIntervalTreeNode root) {
+      forEachInorder(root, node -> System.out.println(describeNode(node)));
+   }
+
+   void printTreePreOrder(){
+      if(root == null){
+         System.out.println("Tree is Empty...");
+         return;
+      }
+      System.out.println("PreOrder Tree Traversal...");
+      printTreePreOrderUtil(root);
+   }
+
+   //Prints PreOrder Tree Traversal
+   private void printTreePreOrderUtil(BalancedTimeIntervalTreeNode root) {
+      if(null == root)
+         return;
+
+      BalancedTimeIntervalTreeNode[] stack = new BalancedTimeIntervalTreeNode[root.height + 1];
+      int top = 0;
+      stack[top++] = root;
+      while(top > 0){
+         BalancedTimeIntervalTreeNode node = stack[--top];
+         System.out.println(describeNode(node));
+         if(node.right != null)
+            stack[top++] = node.right;
+         if(node.left != null)
+            stack[top++] = node.left;
+      }
+   }
+
+   private static String describeNode(BalancedTimeIntervalTreeNode node) {
+      return "[" + node.interval.start + ", " + node.interval.end + "]; Height: " + node.height + "; Max: " + node.max;
+   }
+
+   //Passes the nodes of a subtree to 'action' in order of start time, iteratively
+   private static void forEachInorder(BalancedTimeIntervalTreeNode root, Consumer<BalancedTimeIntervalTreeNode> action) {
+      if(null == root)
+         return;
+      BalancedTimeIntervalTreeNode[] stack = new BalancedTimeIntervalTreeNode[root.height];
+      int top = 0;
+      BalancedTimeIntervalTreeNode curr = root;
+      while(curr != null || top > 0){
+         while(curr != null){
+            stack[top++] = curr;
+            curr = curr.left;
+         }
+         curr = stack[--top];
+         action.accept(curr);
+         curr = curr.right;
+      }
+   }
+
+   //Returns a list of Time Intervals encapsulated by the tree nodes, in order of start time
+   List<TimeInterval> getTreeIntervals(){
+      if(root == null)
+         return null;
+      List<TimeInterval> treeIntervals = new ArrayList<>();
+      forEachInorder(root, node -> treeIntervals.add(node.interval));
+      return treeIntervals;
+   }
+}
@@ -0,0 +1,135 @@
+/***************************************************************************
+ * COPYRIGHT (C) 2018, Munish Bhatia.
+ * All rights reserved. This material contains unpublished, copyrighted
+ * work including confidential and proprietary information.
+ ***************************************************************************/
+
+package intervaltree;
+
+import java.time.LocalTime;
+
+/*
+* This class represents a Node in the Balanced Interval Tree
+* Modelled in the class above
+* */
+class BalancedTimeIntervalTreeNode{
+   TimeInterval interval;
+   int height;
+   //Number of nodes in the subtree rooted here, for rank, select and counting queries
+   int size;
+   LocalTime max;
+   /*Earliest start in the subtree, and the longest stretch (in nanos) within the subtree's span not covered by
+   * its own intervals. An interval outside the subtree may still cover that stretch, so it is an upper bound*/
+   LocalTime minStart;
+   long maxGap;
+   BalancedTimeIntervalTreeNode left, right;
+
+   //Constructor
+   BalancedTimeIntervalTreeNode(TimeInterval i) {
+      this.interval = i;
+      max = i.end;
+      minStart = i.start;
+      maxGap = 0;
+      height = 1;
+      size = 1;
+      left = null;
+      right = null;
+   }
+
+   //Reinitializes a recycled node to hold 'i', as the constructor does
+   BalancedTimeIntervalTreeNode reset(TimeInterval i){
+      interval = i;
+      max = i.end;
+      minStart = i.start;
+      maxGap = 0;
+      height = 1;
+      size = 1;
+      left = null;
+      right = null;
+      return this;
+   }
+
+   /*Performs Left Rotation of the Tree Node
+   * This is used for height balancing the Interval Tree
+   * */
+   BalancedTimeIntervalTreeNode leftRotate(){
+      BalancedTimeIntervalTreeNode rightChild = this.right;
+      BalancedTimeIntervalTreeNode leftChildOfRightChild = rightChild.left;
+
+      //Rotate
+      rightChild.left = this;
+      this.right = leftChildOfRightChild;
+
+      //Update Heights
+      this.height = Math.max(this.left!=null?this.left.height:0, this.right!=null?this.right.height:0) + 1;
+      if(rightChild != null)
+         rightChild.height = Math.max(rightChild.left!=null?rightChild.left.height:0, rightChild.right!=null?rightChild.right.height:0) + 1;
+
+      //Update Max Values
+      this.max = TimeInterval.max(this.interval.end, TimeInterval.max(this.left!=null?this.left.max:LocalTime.MIN, this.right!=null?this.right.max:LocalTime.MIN));
+      if(rightChild != null)
+         rightChild.max = TimeInterval.max(rightChild.interval.end, TimeInterval.max(rightChild.left!=null?rightChild.left.max:LocalTime.MIN, rightChild.right!=null?rightChild.right.max:LocalTime.MIN));
+
+      //Update Subtree Sizes
+      this.size = (this.left!=null?this.left.size:0) + (this.right!=null?this.right.size:0) + 1;
+      rightChild.size = (rightChild.left!=null?rightChild.left.size:0) + (rightChild.right!=null?rightChild.right.size:0) + 1;
+
+      //Update Gap Metadata
+      this.updateGaps();
+      rightChild.updateGaps();
+
+      //Return New Root
+      return rightChild;
+   }
+
+   /*Performs Right Rotation of the Tree Node
+    * This is used for height balancing the Interval Tree
+    * */
+   BalancedTimeIntervalTreeNode rightRotate(){
+      BalancedTimeIntervalTreeNode leftChild = this.left;
+      BalancedTimeIntervalTreeNode rightChildOfLeftChild = leftChild.right;
+
+      //Rotate
+      leftChild.right = this;
+      this.left = rightChildOfLeftChild;
+
+      //Update Heights
+      this.height = Math.max(this.left!=null?this.left.height:0, this.right!=null?this.right.height:0) + 1;
+      if(leftChild != null)
+         leftChild.height = Math.max(leftChild.left!=null?leftChild.left.height:0, leftChild.right!=null?leftChild.right.height:0) + 1;
+
+      //Update Max Values
+      this.max = TimeInterval.max(this.interval.end, TimeInterval.max(this.left!=null?this.left.max:LocalTime.MIN, this.right!=null?this.right.max:LocalTime.MIN));
+      if(leftChild != null)
+         leftChild.max = TimeInterval.max(leftChild.interval.end, TimeInterval.max(leftChild.left!=null?leftChild.left.max:LocalTime.MIN, leftChild.right!=null?leftChild.right.max:LocalTime.MIN));
+
+      //Update Subtree Sizes
+      this.size = (this.left!=null?this.left.size:0) + (this.right!=null?this.right.size:0) + 1;
+      leftChild.size = (leftChild.left!=null?leftChild.left.size:0) + (leftChild.right!=null?leftChild.right.size:0) + 1;
+
+      //Update Gap Metadata
+      this.updateGaps();
+      leftChild.updateGaps();
+
+      //Return New Root
+      return leftChild;
+   }
+
+   /*Recomputes minStart and maxGap from the children, whose metadata must be up to date
+   * Walking the subtree in start order, coverage reaches left.max before this node and then this node's end;
+   * the right subtree's own gaps only count when it reaches past that coverage at all*/
+   void updateGaps(){
+      long gap = 0, covered;
+      if(left != null){
+         covered = left.max.toNanoOfDay();
+         gap = Math.max(left.maxGap, interval.start.toNanoOfDay() - covered);
+         covered = Math.max(covered, interval.end.toNanoOfDay());
+      }
+      else
+         covered = interval.end.toNanoOfDay();
+      if(right != null && right.max.toNanoOfDay() > covered)
+         gap = Math.max(gap, Math.max(right.maxGap, right.minStart.toNanoOfDay() - covered));
+      minStart = left != null ? left.minStart : interval.start;
+      maxGap = gap;
+   }
+}
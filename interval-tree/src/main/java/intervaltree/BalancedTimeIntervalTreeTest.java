@@ -0,0 +1,74 @@
+/***************************************************************************
+ * COPYRIGHT (C) 2018, Munish Bhatia.
+ * All rights reserved. This material contains unpublished, copyrighted
+ * work including confidential and proprietary information.
+ ***************************************************************************/
+
+package intervaltree;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * This class is used to test the Time Interval Trees
+ * and Run Tests Subtracting One List of Time Intervals from Another List of Time Intervals
+ */
+public class BalancedTimeIntervalTreeTest {
+
+   public static void main(String[] args) throws IOException {
+      //Subtract interval files: <subtractFrom file> <subtractThese file> <output file> [CSV|BINARY], each sorted by start time
+      if(args.length >= 3){
+         IntervalFormat format = args.length > 3 ? IntervalFormat.valueOf(args[3]) : IntervalFormat.CSV;
+         long written = StreamingSubtractor.subtract(Paths.get(args[0]), Paths.get(args[1]), Paths.get(args[2]), format);
+         System.out.println(written + " Residual Intervals Written To " + args[2]);
+         return;
+      }
+
+      BalancedTimeIntervalTreeTest object = new BalancedTimeIntervalTreeTest();
+
+      //Create Array1 of time intervals from which the other list should be subtracted
+      TimeInterval[] subtractFrom =
+         {new TimeInterval(9,0,10, 00),
+         new TimeInterval(8, 30, 9, 15),
+         new TimeInterval(8, 00, 8, 15),
+         new TimeInterval(8, 45, 8, 55),
+         new TimeInterval(7, 00, 7, 15),
+         new TimeInterval(8, 20, 8, 25),
+         new TimeInterval(11, 45, 12, 50),
+         new TimeInterval(10, 30, 10, 45)
+         };
+
+      //Create Array of Intervals to be subtracted from Array1 created above
+      TimeInterval[] subtractThese =
+       { new TimeInterval(8, 0, 9, 0),
+         new TimeInterval(9, 0, 10, 20),
+         new TimeInterval(10, 20, 11, 00),
+         new TimeInterval(13, 15, 15, 00),
+         new TimeInterval(11, 10, 12, 15)};
+
+      //Pick the subtraction engine; the interval tree is used unless another engine is named on the command line
+      SubtractionEngine engine = args.length > 0 ? SubtractionEngine.valueOf(args[0]) : SubtractionEngine.INTERVAL_TREE;
+
+      //Perform (subtractFrom - subtractThese)
+      List<TimeInterval> residualList = object.subtractTimeIntervalLists(Arrays.asList(subtractFrom), Arrays.asList(subtractThese), engine);
+
+      //Print Result
+      System.out.println("Residual Intervals...");
+      if(residualList == null || residualList.size() == 0)
+         System.out.println("()");
+      else {
+         for(TimeInterval t:residualList){
+            if(null != t)
+               System.out.println(t.toString());
+         }
+      }
+   }
+
+   //Subtracts List 2 (subtractThis) from List 1 (subtractFrom) using the requested engine
+   List<TimeInterval> subtractTimeIntervalLists(List<TimeInterval> subtractFrom, List<TimeInterval> subtractThis, SubtractionEngine engine){
+      return engine.subtract(subtractFrom, subtractThis);
+   }
+
+}
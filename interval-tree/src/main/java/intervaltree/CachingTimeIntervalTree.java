@@ -0,0 +1,260 @@
+/***************************************************************************
+ * COPYRIGHT (C) 2018, Munish Bhatia.
+ * All rights reserved. This material contains unpublished, copyrighted
+ * work including confidential and proprietary information.
+ ***************************************************************************/
+package intervaltree;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+* This class puts a bounded cache of overlap query results in front of a BalancedTimeIntervalTree
+* Eviction follows W-TinyLFU: new results enter a small LRU window, and a result leaving the window only displaces
+* the least recently used entry of the main region if a frequency sketch has seen its query more often.
+* insertInterval and deleteInterval drop exactly the cached queries overlapping the changed interval, found through
+* a second interval tree indexing the cached query ranges. Bulk updates, or every update once range invalidation is
+* switched off, bump a global epoch instead, which lazily retires everything cached before it.
+* Methods are synchronized, since even a cache hit reorders the LRU lists.
+* */
+class CachingTimeIntervalTree {
+   private final BalancedTimeIntervalTree tree;
+   private final int capacity;
+   private final Map<TimeInterval, CachedResult> window, main;
+   private final int windowCapacity, mainCapacity;
+   private final BalancedTimeIntervalTree cachedRanges = new BalancedTimeIntervalTree();
+   private final FrequencySketch sketch;
+   private long epoch;
+   private boolean rangeInvalidation = true;
+
+   private final LongAdder hits = new LongAdder(), misses = new LongAdder(), evictions = new LongAdder(), invalidations = new LongAdder();
+
+   private static final class CachedResult {
+      final List<TimeInterval> intervals;
+      final long epoch;
+
+      CachedResult(List<TimeInterval> intervals, long epoch){
+         this.intervals = intervals;
+         this.epoch = epoch;
+      }
+   }
+
+   //Constructor, caching queries against a new, empty tree
+   CachingTimeIntervalTree(int capacity){
+      this(new BalancedTimeIntervalTree(), capacity);
+   }
+
+   //Constructor, caching queries against 'tree', which must from then on only be updated through this cache
+   CachingTimeIntervalTree(BalancedTimeIntervalTree tree, int capacity){
+      if(capacity < 2)
+         throw new IllegalArgumentException("Cache Capacity Must be At Least 2.");
+      this.tree = tree;
+      this.capacity = capacity;
+      windowCapacity = Math.max(1, capacity / 100);
+      mainCapacity = capacity - windowCapacity;
+      window = new LinkedHashMap<>(16, 0.75f, true);
+      main = new LinkedHashMap<>(16, 0.75f, true);
+      sketch = new FrequencySketch(capacity);
+   }
+
+   //Fetches the time intervals overlapping with 'key', from the cache when an up to date result is held
+   synchronized List<TimeInterval> getOverlappingIntervals(TimeInterval key){
+      if(key == null)
+         return Collections.emptyList();
+      sketch.increment(key);
+
+      CachedResult cached = window.get(key);
+      if(cached == null)
+         cached = main.get(key);
+      if(cached != null){
+         if(cached.epoch == epoch){
+            hits.increment();
+            return cached.intervals;
+         }
+         remove(key);
+      }
+      misses.increment();
+
+      List<TimeInterval> overlappingIntervals = new ArrayList<>();
+      for(BalancedTimeIntervalTreeNode node : tree.getOverlappingIntervals(key))
+         overlappingIntervals.add(node.interval);
+      List<TimeInterval> result = Collections.unmodifiableList(overlappingIntervals);
+      admit(key, new CachedResult(result, epoch));
+      return result;
+   }
+
+   //Inserts a single time interval to the tree, invalidating the cached queries it overlaps
+   synchronized void insertInterval(TimeInterval i){
+      tree.insertInterval(i);
+      invalidate(i);
+   }
+
+   //Deletes a given time interval from the tree, invalidating the cached queries it overlapped
+   synchronized void deleteInterval(TimeInterval key){
+      tree.deleteInterval(key);
+      invalidate(key);
+   }
+
+   //Inserts a batch of time intervals to the tree; a bulk update invalidates the whole cache through the epoch
+   synchronized void insertIntervals(TimeInterval... intervals){
+      tree.insertIntervals(intervals);
+      invalidateAll();
+   }
+
+   //Subtracts 'op' from the tree; fragments can reach beyond 'op' itself, so the whole cache is invalidated
+   synchronized void subtract(TimeInterval op){
+      tree.subtract(op);
+      invalidateAll();
+   }
+
+   //Chooses between range-aware invalidation (the default) and bumping the global epoch on every update
+   synchronized void setRangeInvalidation(boolean rangeInvalidation){
+      this.rangeInvalidation = rangeInvalidation;
+   }
+
+   //Retires every cached result in constant time; stale entries are dropped as they are found
+   synchronized void invalidateAll(){
+      epoch++;
+      invalidations.increment();
+   }
+
+   private void invalidate(TimeInterval changed){
+      if(changed == null)
+         return;
+      if(!rangeInvalidation){
+         invalidateAll();
+         return;
+      }
+      for(BalancedTimeIntervalTreeNode node : cachedRanges.getOverlappingIntervals(changed)){
+         TimeInterval query = node.interval;
+         remove(query);
+         invalidations.increment();
+      }
+   }
+
+   //Adds a freshly computed result to the window, moving the window's eldest entry on to compete for the main region
+   private void admit(TimeInterval key, CachedResult result){
+      window.put(key, result);
+      cachedRanges.insertInterval(key);
+      if(window.size() <= windowCapacity)
+         return;
+
+      Iterator<Map.Entry<TimeInterval, CachedResult>> windowEldest = window.entrySet().iterator();
+      Map.Entry<TimeInterval, CachedResult> candidate = windowEldest.next();
+      windowEldest.remove();
+      if(main.size() < mainCapacity){
+         main.put(candidate.getKey(), candidate.getValue());
+         return;
+      }
+
+      Iterator<Map.Entry<TimeInterval, CachedResult>> mainEldest = main.entrySet().iterator();
+      Map.Entry<TimeInterval, CachedResult> victim = mainEldest.next();
+      //Stale entries lose outright; otherwise the candidate has to be the more frequently queried of the two
+      boolean rejectCandidate = candidate.getValue().epoch != epoch
+            || (victim.getValue().epoch == epoch && sketch.frequency(candidate.getKey()) <= sketch.frequency(victim.getKey()));
+      if(rejectCandidate){
+         cachedRanges.deleteInterval(candidate.getKey());
+      }
+      else {
+         mainEldest.remove();
+         cachedRanges.deleteInterval(victim.getKey());
+         main.put(candidate.getKey(), candidate.getValue());
+      }
+      evictions.increment();
+   }
+
+   private void remove(TimeInterval key){
+      if(window.remove(key) != null || main.remove(key) != null)
+         cachedRanges.deleteInterval(key);
+   }
+
+   //Number of query results currently cached, including stale ones not yet dropped
+   synchronized int size(){
+      return window.size() + main.size();
+   }
+
+   int getCapacity(){
+      return capacity;
+   }
+
+   long getHits(){
+      return hits.sum();
+   }
+
+   long getMisses(){
+      return misses.sum();
+   }
+
+   long getEvictions(){
+      return evictions.sum();
+   }
+
+   long getInvalidations(){
+      return invalidations.sum();
+   }
+
+   //Ratio of queries answered from the cache, 0 before any query
+   double getHitRatio(){
+      long h = hits.sum(), total = h + misses.sum();
+      return total == 0 ? 0.0 : (double) h / total;
+   }
+
+   /*
+   * Count-min sketch of query frequencies with 4 bit counters, the TinyLFU admission filter
+   * Counters are halved once the number of recorded queries reaches ten times the cache capacity, so popularity ages out
+   * */
+   private static final class FrequencySketch {
+      private static final long[] SEEDS = {0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L, 0xD6E8FEB86659FD93L};
+      private final long[] table;
+      private final int mask;
+      private final int sampleSize;
+      private int additions;
+
+      FrequencySketch(int capacity){
+         int counters = Integer.highestOneBit(Math.max(16, capacity) * 4 - 1) << 1;
+         table = new long[counters / 16];
+         mask = counters - 1;
+         sampleSize = 10 * capacity;
+      }
+
+      void increment(Object key){
+         int hash = key.hashCode();
+         boolean added = false;
+         for(long seed : SEEDS){
+            int counter = index(hash, seed);
+            int slot = counter >>> 4, shift = (counter & 15) << 2;
+            if(((table[slot] >>> shift) & 0xFL) != 0xFL){
+               table[slot] += 1L << shift;
+               added = true;
+            }
+         }
+         if(added && ++additions >= sampleSize)
+            halve();
+      }
+
+      int frequency(Object key){
+         int hash = key.hashCode(), min = 15;
+         for(long seed : SEEDS){
+            int counter = index(hash, seed);
+            min = Math.min(min, (int) ((table[counter >>> 4] >>> ((counter & 15) << 2)) & 0xFL));
+         }
+         return min;
+      }
+
+      private int index(int hash, long seed){
+         long h = (hash + seed) * seed;
+         return (int) (h ^ (h >>> 32)) & mask;
+      }
+
+      private void halve(){
+         for(int i = 0; i < table.length; i++)
+            table[i] = (table[i] >>> 1) & 0x7777777777777777L;
+         additions /= 2;
+      }
+   }
+}
@@ -0,0 +1,86 @@
+/***************************************************************************
+ * COPYRIGHT (C) 2018, Munish Bhatia.
+ * All rights reserved. This material contains unpublished, copyrighted
+ * work including confidential and proprietary information.
+ ***************************************************************************/
+package intervaltree;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/*
+* This class writes time intervals to a channel through a reusable direct buffer
+* Intervals are passed as primitive nanos-of-day values; nothing is allocated per record
+* */
+class ChannelIntervalWriter implements AutoCloseable {
+   static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+
+   private final WritableByteChannel channel;
+   private final IntervalFormat format;
+   private final ByteBuffer buffer;
+   private long records = 0;
+
+   //Creates (or truncates) 'file' and writes to it in the given format
+   ChannelIntervalWriter(Path file, IntervalFormat format) throws IOException {
+      this(FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE), format, DEFAULT_BUFFER_SIZE);
+   }
+
+   //Writes to 'channel', buffering up to 'bufferSize' bytes; the writer closes the channel
+   ChannelIntervalWriter(WritableByteChannel channel, IntervalFormat format, int bufferSize) {
+      if(bufferSize < IntervalFormat.MAX_CSV_RECORD_LENGTH)
+         throw new IllegalArgumentException("Buffer Must Hold At Least One Record.");
+      this.channel = channel;
+      this.format = format;
+      this.buffer = ByteBuffer.allocateDirect(bufferSize);
+   }
+
+   //Writes one interval given as nanos-of-day
+   void write(long startNanos, long endNanos){
+      if(buffer.remaining() < IntervalFormat.MAX_CSV_RECORD_LENGTH)
+         flush();
+      if(format == IntervalFormat.BINARY){
+         buffer.putLong(startNanos);
+         buffer.putLong(endNanos);
+      }
+      else{
+         IntervalFormat.appendTime(buffer, startNanos);
+         buffer.put((byte) ',');
+         IntervalFormat.appendTime(buffer, endNanos);
+         buffer.put((byte) '\n');
+      }
+      records++;
+   }
+
+   //Number of intervals written so far
+   long records(){
+      return records;
+   }
+
+   //Writes out everything buffered so far
+   void flush(){
+      try{
+         buffer.flip();
+         while(buffer.hasRemaining())
+            channel.write(buffer);
+         buffer.clear();
+      }
+      catch(IOException e){
+         throw new UncheckedIOException(e);
+      }
+   }
+
+   @Override
+   public void close() throws IOException {
+      try{
+         flush();
+      }
+      finally{
+         channel.close();
+      }
+   }
+}
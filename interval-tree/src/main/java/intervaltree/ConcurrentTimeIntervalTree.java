@@ -0,0 +1,196 @@
+/***************************************************************************
+ * COPYRIGHT (C) 2018, Munish Bhatia.
+ * All rights reserved. This material contains unpublished, copyrighted
+ * work including confidential and proprietary information.
+ ***************************************************************************/
+
+package intervaltree;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+/*
+* This class models a thread-safe Balanced Interval Tree
+* Nodes are immutable: a write copies only the path from the root to the change (O(log n) new nodes), shares every
+* other node with the previous version, and publishes the new root atomically.
+* Readers work on whichever version they picked up and never take a lock
+* */
+class ConcurrentTimeIntervalTree {
+   private final AtomicReference<PersistentTimeIntervalNode> root = new AtomicReference<>();
+
+   //Inserts a collection of Time Intervals to this Interval Tree
+   public void insertIntervals(TimeInterval... intervals){
+      for(TimeInterval interval:intervals)
+         insertInterval(interval);
+   }
+
+   //Inserts a single time interval to the interval tree
+   public void insertInterval(TimeInterval i){
+      if(null == i)
+         return;
+      update(current -> insertIntervalUtil(current, i));
+   }
+
+   //Deletes a given time interval from the interval tree
+   public void deleteInterval(TimeInterval key){
+      if(null == key)
+         return;
+      update(current -> deleteIntervalUtil(current, key));
+   }
+
+   //Fetches the time intervals in the latest version of the tree which overlap with the provided time interval 'key'
+   List<TimeInterval> getOverlappingIntervals(TimeInterval key){
+      return snapshot().getOverlappingIntervals(key);
+   }
+
+   //Returns a list of Time Intervals held by the latest version of the tree, in order of start time
+   List<TimeInterval> getTreeIntervals(){
+      return snapshot().getTreeIntervals();
+   }
+
+   //Returns the latest version of the tree; it never changes, however many writes follow
+   Snapshot snapshot(){
+      return new Snapshot(root.get());
+   }
+
+   //Applies a write to the latest version and publishes the result, retrying if another writer got there first
+   private void update(UnaryOperator<PersistentTimeIntervalNode> write){
+      while(true){
+         PersistentTimeIntervalNode current = root.get();
+         PersistentTimeIntervalNode next = write.apply(current);
+         if(next == current || root.compareAndSet(current, next))
+            return;
+      }
+   }
+
+   //Util method to perform interval insertion, returns the root of the new version of the subtree
+   private static PersistentTimeIntervalNode insertIntervalUtil(PersistentTimeIntervalNode root, TimeInterval i){
+      if(root == null)
+         return new PersistentTimeIntervalNode(i, null, null);
+      if(i.compareTo(root.interval) <= 0)
+         return balance(root.interval, insertIntervalUtil(root.left, i), root.right);
+      return balance(root.interval, root.left, insertIntervalUtil(root.right, i));
+   }
+
+   //Util method to perform interval deletion, returns 'root' itself when the interval is not in the subtree
+   private static PersistentTimeIntervalNode deleteIntervalUtil(PersistentTimeIntervalNode root, TimeInterval key){
+      if(root == null)
+         return null;
+
+      //This is the node to be deleted: replace it with its in-order successor
+      if(root.interval.equals(key)){
+         if(root.left == null)
+            return root.right;
+         if(root.right == null)
+            return root.left;
+         PersistentTimeIntervalNode successor = root.right;
+         while(successor.left != null)
+            successor = successor.left;
+         return balance(successor.interval, root.left, removeFirst(root.right));
+      }
+
+      int comparison = key.compareTo(root.interval);
+      //Same start time: such intervals can sit on either side of this node
+      boolean goLeft = comparison < 0 || (comparison == 0 && root.left != null && root.left.contains(key));
+      if(goLeft){
+         PersistentTimeIntervalNode left = deleteIntervalUtil(root.left, key);
+         return left == root.left ? root : balance(root.interval, left, root.right);
+      }
+      PersistentTimeIntervalNode right = deleteIntervalUtil(root.right, key);
+      return right == root.right ? root : balance(root.interval, root.left, right);
+   }
+
+   //Returns a new version of the subtree without its leftmost node
+   private static PersistentTimeIntervalNode removeFirst(PersistentTimeIntervalNode root){
+      if(root.left == null)
+         return root.right;
+      return balance(root.interval, removeFirst(root.left), root.right);
+   }
+
+   //Creates a node over 'left' and 'right', whose heights differ by at most 2, rotating to restore the AVL property
+   private static PersistentTimeIntervalNode balance(TimeInterval interval, PersistentTimeIntervalNode left, PersistentTimeIntervalNode right){
+      int leftHeight = PersistentTimeIntervalNode.height(left);
+      int rightHeight = PersistentTimeIntervalNode.height(right);
+
+      //Left Left and Left Right Cases
+      if(leftHeight > rightHeight + 1){
+         if(PersistentTimeIntervalNode.height(left.left) >= PersistentTimeIntervalNode.height(left.right))
+            return new PersistentTimeIntervalNode(left.interval, left.left, new PersistentTimeIntervalNode(interval, left.right, right));
+         PersistentTimeIntervalNode pivot = left.right;
+         return new PersistentTimeIntervalNode(pivot.interval,
+            new PersistentTimeIntervalNode(left.interval, left.left, pivot.left),
+            new PersistentTimeIntervalNode(interval, pivot.right, right));
+      }
+
+      //Right Right and Right Left Cases
+      if(rightHeight > leftHeight + 1){
+         if(PersistentTimeIntervalNode.height(right.right) >= PersistentTimeIntervalNode.height(right.left))
+            return new PersistentTimeIntervalNode(right.interval, new PersistentTimeIntervalNode(interval, left, right.left), right.right);
+         PersistentTimeIntervalNode pivot = right.left;
+         return new PersistentTimeIntervalNode(pivot.interval,
+            new PersistentTimeIntervalNode(interval, left, pivot.left),
+            new PersistentTimeIntervalNode(right.interval, pivot.right, right.right));
+      }
+
+      return new PersistentTimeIntervalNode(interval, left, right);
+   }
+
+   /*
+   * An immutable version of the tree. Queries use a private stack, so any number of threads may share one snapshot
+   * */
+   static class Snapshot {
+      private final PersistentTimeIntervalNode root;
+
+      private Snapshot(PersistentTimeIntervalNode root) {
+         this.root = root;
+      }
+
+      //Fetches the time intervals in this version which overlap with the provided time interval 'key'
+      List<TimeInterval> getOverlappingIntervals(TimeInterval key){
+         List<TimeInterval> overlappingIntervals = new ArrayList<>();
+         if(root == null || key == null)
+            return overlappingIntervals;
+
+         PersistentTimeIntervalNode[] stack = new PersistentTimeIntervalNode[root.height + 1];
+         int top = 0;
+         stack[top++] = root;
+         while(top > 0){
+            PersistentTimeIntervalNode node = stack[--top];
+            if(TimeInterval.doOverlap(node.interval, key))
+               overlappingIntervals.add(node.interval);
+            if(node.right != null && node.interval.start.isBefore(key.end))
+               stack[top++] = node.right;
+            if(node.left != null && node.left.max.isAfter(key.start))
+               stack[top++] = node.left;
+         }
+         return overlappingIntervals;
+      }
+
+      //Returns a list of Time Intervals held by this version, in order of start time
+      List<TimeInterval> getTreeIntervals(){
+         if(root == null)
+            return null;
+         List<TimeInterval> treeIntervals = new ArrayList<>();
+         PersistentTimeIntervalNode[] stack = new PersistentTimeIntervalNode[root.height];
+         int top = 0;
+         PersistentTimeIntervalNode curr = root;
+         while(curr != null || top > 0){
+            while(curr != null){
+               stack[top++] = curr;
+               curr = curr.left;
+            }
+            curr = stack[--top];
+            treeIntervals.add(curr.interval);
+            curr = curr.right;
+         }
+         return treeIntervals;
+      }
+
+      //Height of this version of the tree
+      int height(){
+         return PersistentTimeIntervalNode.height(root);
+      }
+   }
+}
@@ -0,0 +1,151 @@
+/***************************************************************************
+ * COPYRIGHT (C) 2018, Munish Bhatia.
+ * All rights reserved. This material contains unpublished, copyrighted
+ * work including confidential and proprietary information.
+ ***************************************************************************/
+package intervaltree;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/*
+* This class keeps (subtractFrom - active operands) up to date as operands are added and removed
+* Minuends and operands are each held in a BalancedTimeIntervalTree. An operand event looks up the minuends it overlaps
+* and recomputes only their residuals, from the operands overlapping each of them, so its cost follows the affected
+* region rather than the whole data set. Residuals match those of SortAndSweepSubtractor over the active operands.
+* Listeners receive the residual intervals each event removed and added. The view is not thread safe
+* */
+class IncrementalResidualView {
+   private final BalancedTimeIntervalTree minuendTree = new BalancedTimeIntervalTree();
+   private final BalancedTimeIntervalTree operandTree = new BalancedTimeIntervalTree();
+   //Residuals of each distinct minuend, which are the same for every copy of it
+   private final Map<TimeInterval, MinuendState> minuends = new HashMap<>();
+   private final List<ResidualChangeListener> listeners = new CopyOnWriteArrayList<>();
+   private int residualCount = 0;
+
+   private static final class MinuendState {
+      int copies;
+      List<TimeInterval> residuals;
+   }
+
+   //Creates a view of 'subtractFrom' with no operands yet; every minuend is its own residual
+   IncrementalResidualView(List<TimeInterval> subtractFrom){
+      List<TimeInterval> distinct = new ArrayList<>();
+      if(subtractFrom != null){
+         for(TimeInterval minuend:subtractFrom){
+            if(minuend == null)
+               continue;
+            MinuendState state = minuends.get(minuend);
+            if(state == null){
+               state = new MinuendState();
+               state.residuals = List.of(minuend);
+               minuends.put(minuend, state);
+               distinct.add(minuend);
+            }
+            state.copies++;
+            residualCount++;
+         }
+      }
+      minuendTree.mergeIntervals(distinct);
+   }
+
+   void addListener(ResidualChangeListener listener){
+      listeners.add(listener);
+   }
+
+   void removeListener(ResidualChangeListener listener){
+      listeners.remove(listener);
+   }
+
+   //Makes 'operand' active, cutting it out of the residuals it overlaps
+   void addOperand(TimeInterval operand){
+      if(operand == null)
+         return;
+      operandTree.insertInterval(operand);
+      refresh(operand);
+   }
+
+   //Withdraws one active copy of 'operand', restoring the residuals it cut; returns false if it was not active
+   boolean removeOperand(TimeInterval operand){
+      if(operand == null)
+         return false;
+      int before = operandTree.size();
+      operandTree.deleteInterval(operand);
+      if(operandTree.size() == before)
+         return false;
+      refresh(operand);
+      return true;
+   }
+
+   //Recomputes the residuals of the minuends overlapping 'operand' and reports what changed
+   private void refresh(TimeInterval operand){
+      List<TimeInterval> removed = new ArrayList<>(), added = new ArrayList<>();
+      for(BalancedTimeIntervalTreeNode node:minuendTree.getOverlappingIntervals(operand)){
+         TimeInterval minuend = node.interval;
+         MinuendState state = minuends.get(minuend);
+
+         List<TimeInterval> operands = new ArrayList<>();
+         for(BalancedTimeIntervalTreeNode cut:operandTree.getOverlappingIntervals(minuend))
+            operands.add(cut.interval);
+         List<TimeInterval> residuals = new ArrayList<>();
+         SortAndSweepSubtractor.subtractCuts(minuend, SortAndSweepSubtractor.mergeOperands(operands), 0, residuals);
+
+         if(!residuals.equals(state.residuals)){
+            for(int copy = 0; copy < state.copies; copy++){
+               removed.addAll(state.residuals);
+               added.addAll(residuals);
+            }
+            residualCount += (residuals.size() - state.residuals.size()) * state.copies;
+            state.residuals = residuals;
+         }
+      }
+      if(removed.isEmpty() && added.isEmpty())
+         return;
+
+      //Fragments of one minuend kept by the event cancel out, leaving only true deltas
+      removed.sort(SortAndSweepSubtractor.BY_START_THEN_END);
+      added.sort(SortAndSweepSubtractor.BY_START_THEN_END);
+      List<TimeInterval> removedOnly = new ArrayList<>(), addedOnly = new ArrayList<>();
+      int r = 0, a = 0;
+      while(r < removed.size() || a < added.size()){
+         int comparison = r == removed.size() ? 1 : a == added.size() ? -1
+               : SortAndSweepSubtractor.BY_START_THEN_END.compare(removed.get(r), added.get(a));
+         if(comparison < 0)
+            removedOnly.add(removed.get(r++));
+         else if(comparison > 0)
+            addedOnly.add(added.get(a++));
+         else {
+            r++;
+            a++;
+         }
+      }
+      if(removedOnly.isEmpty() && addedOnly.isEmpty())
+         return;
+      for(ResidualChangeListener listener:listeners)
+         listener.residualsChanged(removedOnly, addedOnly);
+   }
+
+   //Returns the current residuals sorted by start time, O(r log r) for r residuals
+   List<TimeInterval> getResiduals(){
+      List<TimeInterval> residuals = new ArrayList<>(residualCount);
+      for(MinuendState state:minuends.values()){
+         for(int copy = 0; copy < state.copies; copy++)
+            residuals.addAll(state.residuals);
+      }
+      residuals.sort(SortAndSweepSubtractor.BY_START_THEN_END);
+      return residuals;
+   }
+
+   //Number of residual intervals
+   int residualCount(){
+      return residualCount;
+   }
+
+   //Number of active operands
+   int operandCount(){
+      return operandTree.size();
+   }
+}
@@ -0,0 +1,99 @@
+/***************************************************************************
+ * COPYRIGHT (C) 2018, Munish Bhatia.
+ * All rights reserved. This material contains unpublished, copyrighted
+ * work including confidential and proprietary information.
+ ***************************************************************************/
+package intervaltree;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/*
+* On-disk formats for streams of time intervals
+* CSV:    one "start,end" pair per line, times written like LocalTime.toString, e.g. 09:00,10:30 or 09:00:05.250,09:01
+* BINARY: fixed width records of two big-endian longs, start and end as nanos-of-day
+* */
+enum IntervalFormat {
+   CSV,
+   BINARY;
+
+   //Width of a BINARY record in bytes
+   static final int BINARY_RECORD_LENGTH = 2 * Long.BYTES;
+   //Longest CSV record written: two HH:mm:ss.nnnnnnnnn times, a comma and a newline
+   static final int MAX_CSV_RECORD_LENGTH = 2 * 18 + 2;
+
+   private static final long NANOS_PER_SECOND = 1_000_000_000L;
+   private static final long NANOS_PER_MINUTE = 60 * NANOS_PER_SECOND;
+   private static final long NANOS_PER_HOUR = 60 * NANOS_PER_MINUTE;
+   private static final int[] POWERS_OF_TEN = {1, 10, 100, 1_000, 10_000, 100_000, 1_000_000, 10_000_000, 100_000_000};
+
+   /*Parses a HH:mm[:ss[.fraction]] time held in bytes [from, to) of 'buffer' into nanos-of-day
+   * Throws IllegalArgumentException when the bytes are not a valid time*/
+   static long parseTime(ByteBuffer buffer, int from, int to){
+      int length = to - from;
+      if(length < 5 || buffer.get(from + 2) != ':')
+         throw invalidTime(buffer, from, to);
+      long hour = twoDigits(buffer, from, to), minute = twoDigits(buffer, from + 3, to);
+      long second = 0, nanos = 0;
+      if(length > 5){
+         if(length < 8 || buffer.get(from + 5) != ':')
+            throw invalidTime(buffer, from, to);
+         second = twoDigits(buffer, from + 6, to);
+         if(length > 8){
+            int digits = length - 9;
+            if(buffer.get(from + 8) != '.' || digits < 1 || digits > 9)
+               throw invalidTime(buffer, from, to);
+            for(int d = 0; d < 9; d++)
+               nanos = nanos * 10 + (d < digits ? digit(buffer, from + 9 + d, from, to) : 0);
+         }
+      }
+      if(hour > 23 || minute > 59 || second > 59)
+         throw invalidTime(buffer, from, to);
+      return hour * NANOS_PER_HOUR + minute * NANOS_PER_MINUTE + second * NANOS_PER_SECOND + nanos;
+   }
+
+   //Writes nanos-of-day as LocalTime.toString would: HH:mm, then :ss and a 3, 6 or 9 digit fraction only when needed
+   static void appendTime(ByteBuffer buffer, long nanosOfDay){
+      int hour = (int) (nanosOfDay / NANOS_PER_HOUR);
+      int minute = (int) (nanosOfDay / NANOS_PER_MINUTE % 60);
+      int second = (int) (nanosOfDay / NANOS_PER_SECOND % 60);
+      int nanos = (int) (nanosOfDay % NANOS_PER_SECOND);
+      putTwoDigits(buffer, hour);
+      buffer.put((byte) ':');
+      putTwoDigits(buffer, minute);
+      if(second == 0 && nanos == 0)
+         return;
+      buffer.put((byte) ':');
+      putTwoDigits(buffer, second);
+      if(nanos == 0)
+         return;
+      buffer.put((byte) '.');
+      int digits = nanos % 1_000_000 == 0 ? 3 : (nanos % 1_000 == 0 ? 6 : 9);
+      int value = digits == 3 ? nanos / 1_000_000 : (digits == 6 ? nanos / 1_000 : nanos);
+      for(int d = digits - 1; d >= 0; d--)
+         buffer.put((byte) ('0' + value / POWERS_OF_TEN[d] % 10));
+   }
+
+   private static long twoDigits(ByteBuffer buffer, int at, int to){
+      return digit(buffer, at, at, to) * 10 + digit(buffer, at + 1, at, to);
+   }
+
+   private static int digit(ByteBuffer buffer, int at, int from, int to){
+      byte b = buffer.get(at);
+      if(b < '0' || b > '9')
+         throw invalidTime(buffer, from, to);
+      return b - '0';
+   }
+
+   private static void putTwoDigits(ByteBuffer buffer, int value){
+      buffer.put((byte) ('0' + value / 10));
+      buffer.put((byte) ('0' + value % 10));
+   }
+
+   private static IllegalArgumentException invalidTime(ByteBuffer buffer, int from, int to){
+      byte[] text = new byte[Math.max(0, to - from)];
+      for(int i = 0; i < text.length; i++)
+         text[i] = buffer.get(from + i);
+      return new IllegalArgumentException("Invalid Time In Interval File: '" + new String(text, StandardCharsets.US_ASCII) + "'");
+   }
+}
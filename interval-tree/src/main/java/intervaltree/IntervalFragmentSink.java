@@ -0,0 +1,18 @@
+/***************************************************************************
+ * COPYRIGHT (C) 2018, Munish Bhatia.
+ * All rights reserved. This material contains unpublished, copyrighted
+ * work including confidential and proprietary information.
+ ***************************************************************************/
+package intervaltree;
+
+import java.time.LocalTime;
+
+/*
+* Receives the fragments of a subtraction as bounds, so no TimeInterval has to be created for fragments the caller
+* only inspects or copies elsewhere
+* */
+@FunctionalInterface
+interface IntervalFragmentSink {
+   //Accepts the fragment (start-end), start never after end
+   void accept(LocalTime start, LocalTime end);
+}
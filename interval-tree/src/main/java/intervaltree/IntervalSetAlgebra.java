@@ -0,0 +1,204 @@
+/***************************************************************************
+ * COPYRIGHT (C) 2018, Munish Bhatia.
+ * All rights reserved. This material contains unpublished, copyrighted
+ * work including confidential and proprietary information.
+ ***************************************************************************/
+package intervaltree;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+
+/*
+* This class computes unions, intersections, differences and complements of any number of interval lists, each
+* sorted by start time, in one streaming pass.
+* Every input is coalesced on the fly into disjoint blocks, so at any instant an input either covers it or not.
+* A heap of the inputs, keyed by their next block boundary, then walks all boundaries in time order, keeping a count
+* of covering inputs; output stretches are the maximal ones where that count satisfies the operation.
+* Results are treated as sets of time: they come out coalesced, in order and of positive length, and zero length
+* input intervals, covering no time, are ignored. Memory use is O(N) and time O(M log N) for M intervals in N inputs
+* */
+class IntervalSetAlgebra {
+   private final List<Iterator<TimeInterval>> inputs;
+   //Lookahead interval of each input, or null once it is exhausted
+   private final TimeInterval[] next;
+   private final long[] blockStart, blockEnd, lastStart;
+   private final boolean[] inside;
+   //Input indices as a binary min-heap ordered by each input's next boundary: its block end when inside, else its block start
+   private final int[] heap;
+   private int heapSize = 0;
+
+   private final int minCovering;
+   private final boolean firstRequired;
+   private int covering = 0;
+
+   private IntervalSetAlgebra(List<? extends Iterator<TimeInterval>> inputs, int minCovering, boolean firstRequired){
+      int n = inputs.size();
+      this.inputs = new ArrayList<>(inputs);
+      this.next = new TimeInterval[n];
+      this.blockStart = new long[n];
+      this.blockEnd = new long[n];
+      this.lastStart = new long[n];
+      this.inside = new boolean[n];
+      this.heap = new int[n];
+      this.minCovering = minCovering;
+      this.firstRequired = firstRequired;
+   }
+
+   //Returns the time covered by at least one of 'inputs'
+   static List<TimeInterval> union(List<? extends Iterable<TimeInterval>> inputs){
+      return collect(inputs, 1, false);
+   }
+
+   //Returns the time covered by every one of 'inputs'; empty when there are none
+   static List<TimeInterval> intersection(List<? extends Iterable<TimeInterval>> inputs){
+      return inputs.isEmpty() ? new ArrayList<>() : collect(inputs, inputs.size(), false);
+   }
+
+   //Returns the time covered by at least 'k' of 'inputs', e.g. when at least k of n attendees are free
+   static List<TimeInterval> atLeast(int k, List<? extends Iterable<TimeInterval>> inputs){
+      if(k < 1)
+         throw new IllegalArgumentException("Coverage Threshold Must be At Least 1.");
+      return collect(inputs, k, false);
+   }
+
+   //Returns the time covered by 'from' and by none of 'these'
+   static List<TimeInterval> difference(Iterable<TimeInterval> from, List<? extends Iterable<TimeInterval>> these){
+      List<Iterable<TimeInterval>> inputs = new ArrayList<>(these.size() + 1);
+      inputs.add(from);
+      inputs.addAll(these);
+      return collect(inputs, 1, true);
+   }
+
+   //Returns the time within 'window' covered by none of 'inputs', e.g. the free time in working hours
+   static List<TimeInterval> complement(TimeInterval window, List<? extends Iterable<TimeInterval>> inputs){
+      return difference(Collections.singletonList(window), inputs);
+   }
+
+   /*Streams the stretches covered by at least 'minCovering' of 'inputs' to 'sink', in order. With 'firstRequired' the
+   * first input must be among them and none of the others may be, which makes a difference (minCovering is then 1).
+   * Throws IllegalArgumentException if an input is not sorted by start time*/
+   static void sweep(List<? extends Iterator<TimeInterval>> inputs, int minCovering, boolean firstRequired, Consumer<TimeInterval> sink){
+      new IntervalSetAlgebra(inputs, minCovering, firstRequired).run(sink);
+   }
+
+   private static List<TimeInterval> collect(List<? extends Iterable<TimeInterval>> inputs, int minCovering, boolean firstRequired){
+      List<Iterator<TimeInterval>> iterators = new ArrayList<>(inputs.size());
+      for(Iterable<TimeInterval> input:inputs)
+         iterators.add(input.iterator());
+      List<TimeInterval> result = new ArrayList<>();
+      sweep(iterators, minCovering, firstRequired, result::add);
+      return result;
+   }
+
+   private void run(Consumer<TimeInterval> sink){
+      for(int i = 0; i < inputs.size(); i++){
+         lastStart[i] = Long.MIN_VALUE;
+         next[i] = read(i);
+         if(loadBlock(i))
+            push(i);
+      }
+
+      boolean emitting = false;
+      long outputStart = 0;
+      while(heapSize > 0){
+         //Apply every boundary at this instant before testing coverage, so touching blocks of different inputs join up
+         long t = boundary(heap[0]);
+         while(heapSize > 0 && boundary(heap[0]) == t){
+            int i = pop();
+            if(inside[i]){
+               inside[i] = false;
+               covering--;
+               if(loadBlock(i))
+                  push(i);
+            }
+            else {
+               inside[i] = true;
+               covering++;
+               push(i);
+            }
+         }
+
+         boolean covered = firstRequired ? inside[0] && covering == 1 : covering >= minCovering;
+         if(covered && !emitting){
+            outputStart = t;
+            emitting = true;
+         }
+         else if(!covered && emitting){
+            sink.accept(TimeInterval.ofNanosOfDay(outputStart, t));
+            emitting = false;
+         }
+      }
+   }
+
+   //Reads the next block of input 'i', coalescing every interval that overlaps or touches it; returns false once exhausted
+   private boolean loadBlock(int i){
+      while(next[i] != null){
+         long start = next[i].startNanos(), end = next[i].endNanos();
+         next[i] = read(i);
+         while(next[i] != null && next[i].startNanos() <= end){
+            end = Math.max(end, next[i].endNanos());
+            next[i] = read(i);
+         }
+         if(start < end){
+            blockStart[i] = start;
+            blockEnd[i] = end;
+            return true;
+         }
+      }
+      return false;
+   }
+
+   private TimeInterval read(int i){
+      Iterator<TimeInterval> input = inputs.get(i);
+      while(input.hasNext()){
+         TimeInterval interval = input.next();
+         if(interval == null)
+            continue;
+         long start = interval.startNanos();
+         if(start < lastStart[i])
+            throw new IllegalArgumentException("Input " + i + " Must Be Sorted By Start Time.");
+         lastStart[i] = start;
+         return interval;
+      }
+      return null;
+   }
+
+   private long boundary(int i){
+      return inside[i] ? blockEnd[i] : blockStart[i];
+   }
+
+   private void push(int i){
+      int child = heapSize++;
+      long key = boundary(i);
+      while(child > 0){
+         int parent = (child - 1) / 2;
+         if(boundary(heap[parent]) <= key)
+            break;
+         heap[child] = heap[parent];
+         child = parent;
+      }
+      heap[child] = i;
+   }
+
+   private int pop(){
+      int top = heap[0], last = heap[--heapSize];
+      long key = boundary(last);
+      int parent = 0;
+      while(true){
+         int child = 2 * parent + 1;
+         if(child >= heapSize)
+            break;
+         if(child + 1 < heapSize && boundary(heap[child + 1]) < boundary(heap[child]))
+            child++;
+         if(boundary(heap[child]) >= key)
+            break;
+         heap[parent] = heap[child];
+         parent = child;
+      }
+      heap[parent] = last;
+      return top;
+   }
+}
@@ -0,0 +1,71 @@
+/***************************************************************************
+ * COPYRIGHT (C) 2018, Munish Bhatia.
+ * All rights reserved. This material contains unpublished, copyrighted
+ * work including confidential and proprietary information.
+ ***************************************************************************/
+package intervaltree;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+* This class records latencies into power-of-two buckets
+* Recording is a couple of atomic increments; percentiles are reported as the upper bound of the bucket they fall in
+* */
+class LatencyHistogram {
+   private static final int BUCKETS = 64;
+
+   //buckets[b] counts latencies in [2^(b-1), 2^b) nanoseconds; bucket 0 counts zero
+   private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+   private final LongAdder count = new LongAdder();
+   private final LongAdder totalNanos = new LongAdder();
+
+   //Records one latency
+   void record(long nanos){
+      if(nanos < 0)
+         nanos = 0;
+      buckets.incrementAndGet(BUCKETS - Long.numberOfLeadingZeros(nanos));
+      count.increment();
+      totalNanos.add(nanos);
+   }
+
+   //Number of latencies recorded
+   long count(){
+      return count.sum();
+   }
+
+   //Mean latency in nanoseconds, 0 when nothing has been recorded
+   double meanNanos(){
+      long recorded = count.sum();
+      return recorded == 0 ? 0 : (double) totalNanos.sum() / recorded;
+   }
+
+   //Upper bound, in nanoseconds, of the bucket holding the given percentile (0-100); 0 when nothing has been recorded
+   long percentileNanos(double percentile){
+      long recorded = 0;
+      long[] snapshot = new long[BUCKETS];
+      for(int b = 0; b < BUCKETS; b++){
+         snapshot[b] = buckets.get(b);
+         recorded += snapshot[b];
+      }
+      if(recorded == 0)
+         return 0;
+
+      long rank = (long) Math.ceil(percentile / 100 * recorded);
+      long seen = 0;
+      for(int b = 0; b < BUCKETS; b++){
+         seen += snapshot[b];
+         if(seen >= rank)
+            return b == 0 ? 0 : (1L << b) - 1;
+      }
+      return Long.MAX_VALUE;
+   }
+
+   //Clears all recorded latencies
+   void reset(){
+      for(int b = 0; b < BUCKETS; b++)
+         buckets.set(b, 0);
+      count.reset();
+      totalNanos.reset();
+   }
+}
@@ -0,0 +1,147 @@
+/***************************************************************************
+ * COPYRIGHT (C) 2018, Munish Bhatia.
+ * All rights reserved. This material contains unpublished, copyrighted
+ * work including confidential and proprietary information.
+ ***************************************************************************/
+package intervaltree;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/*
+* This class reads a file of time intervals through a sliding memory-mapped window
+* Records are decoded straight into primitive nanos-of-day values; no per-record objects are created.
+* Usage: while(reader.next()) use(reader.start(), reader.end());
+* */
+class MappedIntervalReader implements AutoCloseable {
+   //Bytes mapped at a time; the window slides forward as records are consumed
+   static final long DEFAULT_WINDOW = 64L << 20;
+
+   private final FileChannel channel;
+   private final IntervalFormat format;
+   private final long fileSize;
+   private final long windowSize;
+   private MappedByteBuffer window;
+   private long windowStart = 0;
+   //Offset in the file of the next unread byte, and the number of records read so far
+   private long position = 0;
+   private long records = 0;
+   private long start, end;
+
+   //Opens 'file' for reading in the given format
+   MappedIntervalReader(Path file, IntervalFormat format) throws IOException {
+      this(FileChannel.open(file, StandardOpenOption.READ), format, DEFAULT_WINDOW);
+   }
+
+   //Reads from 'channel', mapping at most 'windowSize' bytes at a time; the reader closes the channel
+   MappedIntervalReader(FileChannel channel, IntervalFormat format, long windowSize) throws IOException {
+      if(windowSize < IntervalFormat.MAX_CSV_RECORD_LENGTH)
+         throw new IllegalArgumentException("Window Must Hold At Least One Record.");
+      this.channel = channel;
+      this.format = format;
+      this.fileSize = channel.size();
+      this.windowSize = format == IntervalFormat.BINARY ? windowSize - windowSize % IntervalFormat.BINARY_RECORD_LENGTH : windowSize;
+      map(0);
+   }
+
+   //Advances to the next record, returns false at the end of the file
+   boolean next(){
+      boolean found = format == IntervalFormat.BINARY ? nextBinary() : nextCsv();
+      if(found){
+         records++;
+         if(start > end)
+            throw new IllegalArgumentException("Start Time Cannot be After End Time In an Interval (Record " + records + ").");
+      }
+      return found;
+   }
+
+   //Start of the current record as nanos-of-day
+   long start(){
+      return start;
+   }
+
+   //End of the current record as nanos-of-day
+   long end(){
+      return end;
+   }
+
+   //Number of records read so far
+   long records(){
+      return records;
+   }
+
+   private boolean nextBinary(){
+      if(position + IntervalFormat.BINARY_RECORD_LENGTH > fileSize){
+         if(position < fileSize)
+            throw new IllegalArgumentException("Truncated Record At End Of Interval File.");
+         return false;
+      }
+      if(position + IntervalFormat.BINARY_RECORD_LENGTH > windowStart + window.limit())
+         map(position);
+      int offset = (int) (position - windowStart);
+      start = window.getLong(offset);
+      end = window.getLong(offset + Long.BYTES);
+      position += IntervalFormat.BINARY_RECORD_LENGTH;
+      return true;
+   }
+
+   private boolean nextCsv(){
+      while(position < fileSize){
+         int lineStart = (int) (position - windowStart);
+         int lineEnd = findLineEnd(lineStart);
+         if(lineEnd < 0){
+            //The line runs past the window: slide the window to start at this line and look again
+            map(position);
+            lineStart = 0;
+            lineEnd = findLineEnd(lineStart);
+            if(lineEnd < 0)
+               throw new IllegalArgumentException("Line Too Long In Interval File At Byte " + position + ".");
+         }
+         position = windowStart + lineEnd + 1;
+
+         int contentEnd = lineEnd;
+         if(contentEnd > lineStart && window.get(contentEnd - 1) == '\r')
+            contentEnd--;
+         if(contentEnd == lineStart)
+            continue;
+
+         int comma = lineStart;
+         while(comma < contentEnd && window.get(comma) != ',')
+            comma++;
+         if(comma == contentEnd)
+            throw new IllegalArgumentException("Missing ',' In Interval File At Record " + (records + 1) + ".");
+         start = IntervalFormat.parseTime(window, lineStart, comma);
+         end = IntervalFormat.parseTime(window, comma + 1, contentEnd);
+         return true;
+      }
+      return false;
+   }
+
+   //Returns the index of the '\n' ending the line starting at 'from', the window limit for a last line without one, or -1 if the line runs past the window
+   private int findLineEnd(int from){
+      int limit = window.limit();
+      for(int i = from; i < limit; i++)
+         if(window.get(i) == '\n')
+            return i;
+      return windowStart + limit >= fileSize ? limit : -1;
+   }
+
+   private void map(long offset){
+      try{
+         windowStart = offset;
+         window = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(windowSize, fileSize - offset));
+      }
+      catch(IOException e){
+         throw new UncheckedIOException(e);
+      }
+   }
+
+   @Override
+   public void close() throws IOException {
+      channel.close();
+   }
+}
@@ -0,0 +1,238 @@
+/***************************************************************************
+ * COPYRIGHT (C) 2018, Munish Bhatia.
+ * All rights reserved. This material contains unpublished, copyrighted
+ * work including confidential and proprietary information.
+ ***************************************************************************/
+package intervaltree;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+* This class serves overlap queries straight from a memory-mapped snapshot of a BalancedTimeIntervalTree
+* Opening a snapshot maps the file and checks its header, then makes one pass over the records to check the tree links,
+* so a truncated or corrupt file fails at open rather than in a query. Nothing is deserialized, and every JVM that maps
+* the same file shares its pages through the OS page cache.
+*
+* Snapshot format, little-endian:
+*   header  (32 bytes): magic "ITRS", version, record length, node count, root node, tree height, 8 reserved bytes
+*   records (40 bytes each, level order from the root): start, end and max as nanos-of-day longs,
+*           height int, left and right child record numbers (-1 for none), 4 padding bytes
+* */
+class MappedTimeIntervalTree implements AutoCloseable {
+   static final int MAGIC = 0x53525449; //"ITRS" read little-endian
+   static final int VERSION = 1;
+   static final int HEADER_LENGTH = 32;
+   static final int RECORD_LENGTH = 40;
+   private static final int NONE = -1;
+   //Records mapped per buffer, keeping each mapping well under the 2GB limit of a MappedByteBuffer
+   private static final int RECORDS_PER_SEGMENT = 1 << 24;
+
+   private static final int START = 0, END = 8, MAX = 16, HEIGHT = 24, LEFT = 28, RIGHT = 32;
+
+   private final FileChannel channel;
+   private final MappedByteBuffer[] segments;
+   private final int nodeCount, rootNode, height;
+
+   private MappedTimeIntervalTree(FileChannel channel) throws IOException {
+      this.channel = channel;
+      long fileSize = channel.size();
+      if(fileSize < HEADER_LENGTH)
+         throw new IOException("Not An Interval Tree Snapshot: File Too Short.");
+
+      ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+      if(header.getInt(0) != MAGIC)
+         throw new IOException("Not An Interval Tree Snapshot: Bad Magic Number.");
+      if(header.getInt(4) != VERSION || header.getInt(8) != RECORD_LENGTH)
+         throw new IOException("Unsupported Interval Tree Snapshot Version " + header.getInt(4) + ".");
+      nodeCount = header.getInt(12);
+      rootNode = header.getInt(16);
+      height = header.getInt(20);
+      if(nodeCount < 0 || fileSize != HEADER_LENGTH + (long) nodeCount * RECORD_LENGTH)
+         throw new IOException("Corrupt Snapshot: File Size Does Not Match Its " + nodeCount + " Records.");
+      if(nodeCount == 0 ? rootNode != NONE || height != 0 : rootNode < 0 || rootNode >= nodeCount)
+         throw new IOException("Corrupt Snapshot: Root Record " + rootNode + " Out Of Range.");
+
+      segments = new MappedByteBuffer[(nodeCount + RECORDS_PER_SEGMENT - 1) / RECORDS_PER_SEGMENT];
+      for(int s = 0; s < segments.length; s++){
+         long first = (long) s * RECORDS_PER_SEGMENT;
+         long records = Math.min(RECORDS_PER_SEGMENT, nodeCount - first);
+         segments[s] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_LENGTH + first * RECORD_LENGTH, records * RECORD_LENGTH);
+         segments[s].order(ByteOrder.LITTLE_ENDIAN);
+      }
+      validateRecords();
+   }
+
+   /*Checks every record, so queries can trust what they read: bounds are valid nanos-of-day with start <= end, children
+   * are in range and numbered after their parent, which rules out cycles, and heights are consistent with the children
+   * and the header, which bounds the query stacks. Records are checked last to first, so children come before parents*/
+   private void validateRecords() throws IOException {
+      long endOfDay = LocalTime.MAX.toNanoOfDay();
+      for(int node = nodeCount - 1; node >= 0; node--){
+         long start = longField(node, START), end = longField(node, END);
+         if(start < 0 || start > end || end > endOfDay)
+            throw new IOException("Corrupt Snapshot: Record " + node + " Has Invalid Bounds.");
+         int left = intField(node, LEFT), right = intField(node, RIGHT);
+         int expectedHeight = Math.max(childHeight(node, left), childHeight(node, right)) + 1;
+         if(intField(node, HEIGHT) != expectedHeight)
+            throw new IOException("Corrupt Snapshot: Record " + node + " Has Height " + intField(node, HEIGHT) + ", Expected " + expectedHeight + ".");
+      }
+      if(rootNode != NONE && intField(rootNode, HEIGHT) != height)
+         throw new IOException("Corrupt Snapshot: Header Height " + height + " Does Not Match The Root Record.");
+   }
+
+   //Height of child record 'child' of 'node', 0 for none, after checking the link
+   private int childHeight(int node, int child) throws IOException {
+      if(child == NONE)
+         return 0;
+      if(child <= node || child >= nodeCount)
+         throw new IOException("Corrupt Snapshot: Record " + node + " Links To Record " + child + ".");
+      return intField(child, HEIGHT);
+   }
+
+   //Maps the snapshot in 'file' for querying
+   static MappedTimeIntervalTree open(Path file) throws IOException {
+      FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+      try{
+         return new MappedTimeIntervalTree(channel);
+      }
+      catch(IOException | RuntimeException e){
+         channel.close();
+         throw e;
+      }
+   }
+
+   //Writes 'tree', with its balanced layout, heights and max values, to a snapshot in 'file'
+   static void write(BalancedTimeIntervalTree tree, Path file) throws IOException {
+      BalancedTimeIntervalTreeNode root = tree.getRoot();
+      try(FileChannel out = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)){
+         ByteBuffer buffer = ByteBuffer.allocateDirect(RECORD_LENGTH << 14).order(ByteOrder.LITTLE_ENDIAN);
+         buffer.putInt(MAGIC).putInt(VERSION).putInt(RECORD_LENGTH).putInt(tree.size())
+            .putInt(root != null ? 0 : NONE).putInt(tree.height()).putLong(0);
+
+         //Level order: a node's children are numbered when the node is written, so every child link is known up front
+         ArrayDeque<BalancedTimeIntervalTreeNode> queue = new ArrayDeque<>();
+         if(root != null)
+            queue.add(root);
+         int nextNumber = 1;
+         while(!queue.isEmpty()){
+            BalancedTimeIntervalTreeNode node = queue.poll();
+            int left = NONE, right = NONE;
+            if(node.left != null){
+               left = nextNumber++;
+               queue.add(node.left);
+            }
+            if(node.right != null){
+               right = nextNumber++;
+               queue.add(node.right);
+            }
+            if(buffer.remaining() < RECORD_LENGTH)
+               drain(buffer, out);
+            buffer.putLong(node.interval.startNanos()).putLong(node.interval.endNanos()).putLong(node.max.toNanoOfDay())
+               .putInt(node.height).putInt(left).putInt(right).putInt(0);
+         }
+         drain(buffer, out);
+      }
+   }
+
+   private static void drain(ByteBuffer buffer, FileChannel out) throws IOException {
+      buffer.flip();
+      while(buffer.hasRemaining())
+         out.write(buffer);
+      buffer.clear();
+   }
+
+   //Fetches the time intervals in the snapshot which overlap with the provided time interval 'key'
+   List<TimeInterval> getOverlappingIntervals(TimeInterval key){
+      List<TimeInterval> overlappingIntervals = new ArrayList<>();
+      if(key != null)
+         visitOverlappingNodes(key.startNanos(), key.endNanos(), overlappingIntervals);
+      return overlappingIntervals;
+   }
+
+   //Counts the intervals in the snapshot overlapping [keyStart, keyEnd] (nanos-of-day) without materializing them
+   int countOverlapping(long keyStart, long keyEnd){
+      return visitOverlappingNodes(keyStart, keyEnd, null);
+   }
+
+   //Walks the nodes overlapping [keyStart, keyEnd], adding them to 'result' when given, and returns how many there were
+   private int visitOverlappingNodes(long keyStart, long keyEnd, List<TimeInterval> result){
+      if(rootNode == NONE)
+         return 0;
+      int[] stack = new int[height + 1];
+      int top = 0, found = 0;
+      stack[top++] = rootNode;
+      while(top > 0){
+         int node = stack[--top];
+         ByteBuffer segment = segments[node / RECORDS_PER_SEGMENT];
+         int offset = (node % RECORDS_PER_SEGMENT) * RECORD_LENGTH;
+         long start = segment.getLong(offset + START), end = segment.getLong(offset + END);
+         if(start < keyEnd && end > keyStart){
+            found++;
+            if(result != null)
+               result.add(TimeInterval.ofNanosOfDay(start, end));
+         }
+         int right = segment.getInt(offset + RIGHT), left = segment.getInt(offset + LEFT);
+         //Right subtree intervals start no sooner than this node; left subtree is skipped when nothing in it ends after the key starts
+         if(right != NONE && start < keyEnd)
+            stack[top++] = right;
+         if(left != NONE && maxOf(left) > keyStart)
+            stack[top++] = left;
+      }
+      return found;
+   }
+
+   //Returns a list of Time Intervals held by the snapshot, in order of start time
+   List<TimeInterval> getTreeIntervals(){
+      List<TimeInterval> treeIntervals = new ArrayList<>(nodeCount);
+      int[] stack = new int[height + 1];
+      int top = 0, node = rootNode;
+      while(node != NONE || top > 0){
+         while(node != NONE){
+            stack[top++] = node;
+            node = intField(node, LEFT);
+         }
+         node = stack[--top];
+         treeIntervals.add(TimeInterval.ofNanosOfDay(longField(node, START), longField(node, END)));
+         node = intField(node, RIGHT);
+      }
+      return treeIntervals;
+   }
+
+   //Number of intervals in the snapshot
+   int size(){
+      return nodeCount;
+   }
+
+   //Height of the snapshot's tree
+   int height(){
+      return height;
+   }
+
+   private long maxOf(int node){
+      return longField(node, MAX);
+   }
+
+   private long longField(int node, int field){
+      return segments[node / RECORDS_PER_SEGMENT].getLong((node % RECORDS_PER_SEGMENT) * RECORD_LENGTH + field);
+   }
+
+   private int intField(int node, int field){
+      return segments[node / RECORDS_PER_SEGMENT].getInt((node % RECORDS_PER_SEGMENT) * RECORD_LENGTH + field);
+   }
+
+   //Closes the file; the mapping itself is released once the buffers are garbage collected
+   @Override
+   public void close() throws IOException {
+      channel.close();
+   }
+}
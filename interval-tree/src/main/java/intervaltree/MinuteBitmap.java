@@ -0,0 +1,241 @@
+/***************************************************************************
+ * COPYRIGHT (C) 2018, Munish Bhatia.
+ * All rights reserved. This material contains unpublished, copyrighted
+ * work including confidential and proprietary information.
+ ***************************************************************************/
+package intervaltree;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/*
+* This class represents a set of time intervals at minute resolution as a bitmap of the day: bit m is set when
+* minute [m, m+1) is covered, so a whole day takes 1440 bits in 23 longs.
+* Union, intersection and subtraction are word-wise bit operations over those 23 words, written as plain loops
+* that the JIT vectorizes, and conversion to and from intervals scans runs of set bits a word at a time.
+* Interval bounds must fall on whole minutes; an interval ending at LocalTime.MAX covers the last minute of the day.
+* As a set of time, the bitmap keeps no zero length intervals and coalesces touching ones
+* */
+class MinuteBitmap {
+   static final int MINUTES_PER_DAY = 1440;
+   private static final int WORDS = (MINUTES_PER_DAY + 63) >>> 6;
+   private static final long NANOS_PER_MINUTE = 60_000_000_000L;
+   private static final long END_OF_DAY_NANOS = LocalTime.MAX.toNanoOfDay();
+   //Bits of the last word that stand for minutes of the day
+   private static final long LAST_WORD_MASK = -1L >>> (WORDS * 64 - MINUTES_PER_DAY);
+
+   private final long[] words = new long[WORDS];
+
+   //Creates an empty bitmap
+   MinuteBitmap() {
+   }
+
+   //Creates a bitmap covering every minute covered by 'intervals'
+   static MinuteBitmap of(List<TimeInterval> intervals){
+      MinuteBitmap bitmap = new MinuteBitmap();
+      if(intervals != null){
+         for(TimeInterval interval:intervals)
+            bitmap.add(interval);
+      }
+      return bitmap;
+   }
+
+   /*Subtracts 'subtractThese' from every interval of 'subtractFrom', returning the residuals in order of start time
+   * The operands are folded into one bitmap, then each minuend is scanned for the runs it keeps. As with the other
+   * engines zero length operands split the minuends they fall inside, kept as set bits of a second bitmap, and a zero
+   * length minuend survives unless a single operand strictly contains it. A third bitmap marks the instants strictly
+   * inside some operand, so a point where two operands only touch is not mistaken for covered time*/
+   static List<TimeInterval> subtract(List<TimeInterval> subtractFrom, List<TimeInterval> subtractThese){
+      MinuteBitmap cuts = new MinuteBitmap(), points = new MinuteBitmap(), interiors = new MinuteBitmap();
+      if(subtractThese != null){
+         for(TimeInterval operand:subtractThese){
+            if(operand == null)
+               continue;
+            int from = toMinute(operand.start), to = toMinute(operand.end);
+            if(from < to){
+               cuts.setRange(from, to);
+               interiors.setRange(from + 1, to);
+            }
+            else if(from < MINUTES_PER_DAY)
+               points.setRange(from, from + 1);
+         }
+      }
+      List<TimeInterval> minuends = new ArrayList<>(subtractFrom == null ? 0 : subtractFrom.size());
+      if(subtractFrom != null){
+         for(TimeInterval interval:subtractFrom){
+            if(interval != null)
+               minuends.add(interval);
+         }
+      }
+      minuends.sort(SortAndSweepSubtractor.BY_START_THEN_END);
+
+      List<TimeInterval> residuals = new ArrayList<>();
+      for(TimeInterval minuend:minuends){
+         int from = toMinute(minuend.start), to = toMinute(minuend.end);
+         if(from == to){
+            if(from == MINUTES_PER_DAY || !interiors.get(from))
+               residuals.add(minuend);
+            continue;
+         }
+         int position = from;
+         while(position < to){
+            int runStart = cuts.nextClearBit(position);
+            if(runStart >= to)
+               break;
+            int runEnd = Math.min(cuts.nextSetBit(runStart), to);
+            for(int split = points.nextSetBit(runStart + 1); split < runEnd; split = points.nextSetBit(split + 1)){
+               residuals.add(toInterval(runStart, split));
+               runStart = split;
+            }
+            residuals.add(toInterval(runStart, runEnd));
+            position = runEnd;
+         }
+      }
+      residuals.sort(SortAndSweepSubtractor.BY_START_THEN_END);
+      return residuals;
+   }
+
+   //Covers every minute of 'interval'
+   void add(TimeInterval interval){
+      if(interval != null)
+         setRange(toMinute(interval.start), toMinute(interval.end));
+   }
+
+   //Removes every minute covered by 'other' from this bitmap
+   MinuteBitmap subtract(MinuteBitmap other){
+      for(int w = 0; w < WORDS; w++)
+         words[w] &= ~other.words[w];
+      return this;
+   }
+
+   //Adds every minute covered by 'other' to this bitmap
+   MinuteBitmap union(MinuteBitmap other){
+      for(int w = 0; w < WORDS; w++)
+         words[w] |= other.words[w];
+      return this;
+   }
+
+   //Keeps only the minutes also covered by 'other'
+   MinuteBitmap intersect(MinuteBitmap other){
+      for(int w = 0; w < WORDS; w++)
+         words[w] &= other.words[w];
+      return this;
+   }
+
+   //Flips every minute of the day
+   MinuteBitmap complement(){
+      for(int w = 0; w < WORDS; w++)
+         words[w] = ~words[w];
+      words[WORDS - 1] &= LAST_WORD_MASK;
+      return this;
+   }
+
+   //Returns a copy of this bitmap
+   MinuteBitmap copy(){
+      MinuteBitmap copy = new MinuteBitmap();
+      System.arraycopy(words, 0, copy.words, 0, WORDS);
+      return copy;
+   }
+
+   //Number of minutes covered
+   int cardinality(){
+      int minutes = 0;
+      for(long word:words)
+         minutes += Long.bitCount(word);
+      return minutes;
+   }
+
+   boolean isEmpty(){
+      for(long word:words){
+         if(word != 0)
+            return false;
+      }
+      return true;
+   }
+
+   //Checks if minute 'minute' of the day is covered
+   boolean get(int minute){
+      return (words[minute >>> 6] & (1L << minute)) != 0;
+   }
+
+   //Returns the covered time as coalesced intervals in order, found by scanning runs of set bits
+   List<TimeInterval> toIntervals(){
+      List<TimeInterval> intervals = new ArrayList<>();
+      int position = nextSetBit(0);
+      while(position < MINUTES_PER_DAY){
+         int runEnd = nextClearBit(position);
+         intervals.add(toInterval(position, runEnd));
+         position = nextSetBit(runEnd);
+      }
+      return intervals;
+   }
+
+   //Sets minutes [from, to)
+   private void setRange(int from, int to){
+      if(from >= to)
+         return;
+      int first = from >>> 6, last = (to - 1) >>> 6;
+      long firstMask = -1L << from, lastMask = -1L >>> -to;
+      if(first == last){
+         words[first] |= firstMask & lastMask;
+         return;
+      }
+      words[first] |= firstMask;
+      for(int w = first + 1; w < last; w++)
+         words[w] = -1L;
+      words[last] |= lastMask;
+   }
+
+   //Returns the first covered minute at or after 'from', or MINUTES_PER_DAY if there is none
+   private int nextSetBit(int from){
+      if(from >= MINUTES_PER_DAY)
+         return MINUTES_PER_DAY;
+      int w = from >>> 6;
+      long word = words[w] & (-1L << from);
+      while(word == 0){
+         if(++w == WORDS)
+            return MINUTES_PER_DAY;
+         word = words[w];
+      }
+      return Math.min((w << 6) + Long.numberOfTrailingZeros(word), MINUTES_PER_DAY);
+   }
+
+   //Returns the first uncovered minute at or after 'from', or MINUTES_PER_DAY if there is none
+   private int nextClearBit(int from){
+      if(from >= MINUTES_PER_DAY)
+         return MINUTES_PER_DAY;
+      int w = from >>> 6;
+      long word = ~words[w] & (-1L << from);
+      while(word == 0){
+         if(++w == WORDS)
+            return MINUTES_PER_DAY;
+         word = ~words[w];
+      }
+      return Math.min((w << 6) + Long.numberOfTrailingZeros(word), MINUTES_PER_DAY);
+   }
+
+   private static int toMinute(LocalTime time){
+      long nanos = time.toNanoOfDay();
+      if(nanos == END_OF_DAY_NANOS)
+         return MINUTES_PER_DAY;
+      if(nanos % NANOS_PER_MINUTE != 0)
+         throw new IllegalArgumentException("Bitmap Interval Bounds Must Fall On Whole Minutes: " + time + ".");
+      return (int) (nanos / NANOS_PER_MINUTE);
+   }
+
+   private static TimeInterval toInterval(int fromMinute, int toMinute){
+      return TimeInterval.ofNanosOfDay(fromMinute * NANOS_PER_MINUTE, toMinute == MINUTES_PER_DAY ? END_OF_DAY_NANOS : toMinute * NANOS_PER_MINUTE);
+   }
+
+   @Override
+   public boolean equals(Object obj) {
+      return obj instanceof MinuteBitmap && Arrays.equals(words, ((MinuteBitmap) obj).words);
+   }
+
+   @Override
+   public int hashCode() {
+      return Arrays.hashCode(words);
+   }
+}
@@ -0,0 +1,189 @@
+/***************************************************************************
+ * COPYRIGHT (C) 2018, Munish Bhatia.
+ * All rights reserved. This material contains unpublished, copyrighted
+ * work including confidential and proprietary information.
+ ***************************************************************************/
+package intervaltree;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/*
+* This class is an immutable, read-optimized index over a fixed list of time intervals: a nested containment list
+* laid out in contiguous primitive arrays.
+* Intervals contained in another are moved into that interval's sublist, so no two intervals of a sublist contain one
+* another and each sublist is sorted by both start and end. A query binary searches a sublist for the first interval
+* ending after the key starts, then scans forward while intervals start before the key ends: every interval scanned is
+* a match, and sublists are only entered through a matching parent, so queries take O((k + 1) log n) for k results.
+* Sublists are stored contiguously, one after another, so scans read consecutive array slots.
+* The index is safe for concurrent readers
+* */
+class NestedContainmentListIndex {
+   private static final int NONE = -1;
+
+   //Interval bounds in nanos-of-day, in layout order
+   private final long[] starts, ends;
+   //Range [childFrom, childTo) of each interval's sublist; empty when childFrom == childTo
+   private final int[] childFrom, childTo;
+   //The original intervals in layout order, returned by queries
+   private final TimeInterval[] intervals;
+   //Length of the top level list, which starts at index 0
+   private final int topLevel;
+
+   //Builds the index over the non null intervals of 'source', O(n log n)
+   NestedContainmentListIndex(List<TimeInterval> source){
+      List<TimeInterval> sorted = new ArrayList<>(source == null ? 0 : source.size());
+      if(source != null){
+         for(TimeInterval interval:source){
+            if(interval != null)
+               sorted.add(interval);
+         }
+      }
+      //Start ascending, then end descending, so an interval comes after every interval containing it
+      sorted.sort((a, b) -> a.start.equals(b.start) ? b.end.compareTo(a.end) : a.start.compareTo(b.start));
+      int n = sorted.size();
+
+      //Parent of each interval: the innermost earlier interval still open that reaches at least as far
+      int[] parent = new int[n];
+      int[] open = new int[Math.max(1, n)];
+      int depth = 0;
+      for(int i = 0; i < n; i++){
+         long end = sorted.get(i).endNanos();
+         while(depth > 0 && sorted.get(open[depth - 1]).endNanos() < end)
+            depth--;
+         parent[i] = depth > 0 ? open[depth - 1] : NONE;
+         open[depth++] = i;
+      }
+
+      //Group children by parent, keeping sorted order within each group (a counting sort on parent + 1)
+      int[] groupStart = new int[n + 2];
+      for(int i = 0; i < n; i++)
+         groupStart[parent[i] + 2]++;
+      for(int g = 1; g < groupStart.length; g++)
+         groupStart[g] += groupStart[g - 1];
+      int[] grouped = new int[n];
+      int[] fill = Arrays.copyOf(groupStart, n + 1);
+      for(int i = 0; i < n; i++)
+         grouped[fill[parent[i] + 1]++] = i;
+
+      //Lay the sublists out breadth first: the top level first, then each placed interval's children in turn
+      starts = new long[n];
+      ends = new long[n];
+      childFrom = new int[n];
+      childTo = new int[n];
+      intervals = new TimeInterval[n];
+      topLevel = groupStart[1];
+      int placed = 0;
+      for(int g = 0; g < topLevel; g++)
+         place(sorted.get(grouped[g]), placed++);
+      int[] sortedIndexAt = new int[n];
+      System.arraycopy(grouped, 0, sortedIndexAt, 0, topLevel);
+      for(int slot = 0; slot < n; slot++){
+         int original = sortedIndexAt[slot];
+         childFrom[slot] = placed;
+         for(int g = groupStart[original + 1]; g < groupStart[original + 2]; g++){
+            sortedIndexAt[placed] = grouped[g];
+            place(sorted.get(grouped[g]), placed++);
+         }
+         childTo[slot] = placed;
+      }
+   }
+
+   private void place(TimeInterval interval, int slot){
+      starts[slot] = interval.startNanos();
+      ends[slot] = interval.endNanos();
+      intervals[slot] = interval;
+   }
+
+   //Number of intervals in the index
+   int size(){
+      return intervals.length;
+   }
+
+   //Fetches the intervals overlapping with 'key'
+   List<TimeInterval> getOverlappingIntervals(TimeInterval key){
+      List<TimeInterval> overlappingIntervals = new ArrayList<>();
+      getOverlappingIntervals(key, overlappingIntervals);
+      return overlappingIntervals;
+   }
+
+   //Fetches the intervals overlapping with 'key' into a caller supplied buffer, which is cleared first; returns the count
+   int getOverlappingIntervals(TimeInterval key, List<TimeInterval> result){
+      result.clear();
+      if(key == null)
+         return 0;
+      return search(key.startNanos(), key.endNanos(), result);
+   }
+
+   //Counts the intervals overlapping with 'key' without collecting them
+   int countOverlapping(TimeInterval key){
+      return key == null ? 0 : search(key.startNanos(), key.endNanos(), null);
+   }
+
+   //Fetches the intervals containing instant 't': starting at or before it and ending after it
+   List<TimeInterval> stab(LocalTime t){
+      List<TimeInterval> containing = new ArrayList<>();
+      if(t != null){
+         long nanos = t.toNanoOfDay();
+         //Starting before nanos + 1 and ending after nanos
+         search(nanos, nanos + 1, containing);
+      }
+      return containing;
+   }
+
+   /*Walks the sublists for intervals with start < keyEnd and end > keyStart, adding them to 'result' when given
+   * A sublist is scanned in place; descending into a child sublist saves where to resume as a frame, so at most
+   * one frame per nesting level is pending*/
+   private int search(long keyStart, long keyEnd, List<TimeInterval> result){
+      int[] frames = null;
+      int top = 0, found = 0;
+      int i = firstEndingAfter(0, topLevel, keyStart), hi = topLevel;
+      while(true){
+         if(i < hi && starts[i] < keyEnd){
+            found++;
+            if(result != null)
+               result.add(intervals[i]);
+            int from = childFrom[i], to = childTo[i];
+            if(from < to && starts[from] < keyEnd){
+               //Deep nesting often leaves the first child a match already, sparing the search
+               int child = ends[from] > keyStart ? from : firstEndingAfter(from + 1, to, keyStart);
+               if(child < to){
+                  if(i + 1 < hi){
+                     if(frames == null)
+                        frames = new int[32];
+                     else if(top + 2 > frames.length)
+                        frames = Arrays.copyOf(frames, frames.length * 2);
+                     frames[top++] = i + 1;
+                     frames[top++] = hi;
+                  }
+                  i = child;
+                  hi = to;
+                  continue;
+               }
+            }
+            i++;
+         }
+         else if(top > 0){
+            hi = frames[--top];
+            i = frames[--top];
+         }
+         else
+            return found;
+      }
+   }
+
+   //Returns the first index in [from, to) whose interval ends after 'nanos', or 'to'; ends ascend within a sublist
+   private int firstEndingAfter(int from, int to, long nanos){
+      int lo = from, hi = to;
+      while(lo < hi){
+         int mid = (lo + hi) >>> 1;
+         if(ends[mid] > nanos)
+            hi = mid;
+         else
+            lo = mid + 1;
+      }
+      return lo;
+   }
+}
@@ -0,0 +1,385 @@
+/***************************************************************************
+ * COPYRIGHT (C) 2018, Munish Bhatia.
+ * All rights reserved. This material contains unpublished, copyrighted
+ * work including confidential and proprietary information.
+ ***************************************************************************/
+package intervaltree;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/*
+* This class models a Balanced Interval Tree whose nodes live outside the Java heap
+* Node records (start, end, max, height, left, right) are packed into direct ByteBuffer slabs allocated a slab at a time,
+* and deleted nodes are recycled through a free list threaded through their 'left' field, so heap use stays flat
+* however large the tree grows. Balancing follows PrimitiveTimeIntervalTree.
+* close() releases the slabs at once, through the buffers' cleaner, rather than waiting for the garbage collector
+* */
+class OffHeapTimeIntervalTree implements AutoCloseable {
+   private static final int NIL = -1;
+   //Record field offsets match a MappedTimeIntervalTree snapshot record, but slabs use native byte order, not little-endian
+   private static final int START = 0, END = 8, MAX = 16, HEIGHT = 24, LEFT = 28, RIGHT = 32;
+   private static final int RECORD_LENGTH = 40;
+   private static final int DEFAULT_SLAB_SHIFT = 20;
+
+   private final int slabShift, slabMask;
+   private ByteBuffer[] slabs = new ByteBuffer[4];
+   private int slabCount = 0;
+
+   private int root = NIL;
+   private int size = 0;
+   //Number of node ids handed out so far, and head of the list of ids freed by deletes
+   private int allocated = 0;
+   private int freeList = NIL;
+   private boolean closed = false;
+
+   //Creates an empty tree allocating 2^20 nodes (40MB) per slab
+   OffHeapTimeIntervalTree(){
+      this(DEFAULT_SLAB_SHIFT);
+   }
+
+   //Creates an empty tree allocating 2^slabShift nodes per slab
+   OffHeapTimeIntervalTree(int slabShift){
+      if(slabShift < 4 || slabShift > 25)
+         throw new IllegalArgumentException("Slab Shift Must be Between 4 and 25.");
+      this.slabShift = slabShift;
+      this.slabMask = (1 << slabShift) - 1;
+   }
+
+   //Inserts a collection of Time Intervals to this Interval Tree
+   public void insertIntervals(TimeInterval... intervals){
+      for(TimeInterval interval:intervals)
+         insertInterval(interval);
+   }
+
+   //Inserts a single time interval to the interval tree
+   public void insertInterval(TimeInterval i){
+      if(null == i)
+         return;
+      insertInterval(i.startNanos(), i.endNanos());
+   }
+
+   //Inserts the interval [startNanos, endNanos] (nanos-of-day) to the interval tree
+   public void insertInterval(long startNanos, long endNanos){
+      ensureOpen();
+      if(startNanos > endNanos)
+         throw new IllegalArgumentException("Start Time Cannot be After End Time In an Interval.");
+      root = insertIntervalUtil(root, newNode(startNanos, endNanos));
+      size++;
+   }
+
+   //Util method to perform interval insertion
+   private int insertIntervalUtil(int root, int node){
+      //Base Case: Empty SubTree
+      if(root == NIL)
+         return node;
+
+      //Determine which side of the root does this node belong to
+      if(getLong(node, START) <= getLong(root, START))
+         setInt(root, LEFT, insertIntervalUtil(getInt(root, LEFT), node));
+      else
+         setInt(root, RIGHT, insertIntervalUtil(getInt(root, RIGHT), node));
+
+      update(root);
+      return rebalance(root);
+   }
+
+   //Deletes a given time interval from the interval tree
+   public void deleteInterval(TimeInterval key){
+      if(null == key)
+         return;
+      deleteInterval(key.startNanos(), key.endNanos());
+   }
+
+   //Deletes the interval [startNanos, endNanos] (nanos-of-day) from the interval tree, if present
+   public void deleteInterval(long startNanos, long endNanos){
+      ensureOpen();
+      if(root == NIL || !containsInterval(root, startNanos, endNanos))
+         return;
+      root = deleteIntervalUtil(root, startNanos, endNanos);
+      size--;
+   }
+
+   //Util method to perform interval deletion; the interval is known to be present in the subtree
+   private int deleteIntervalUtil(int root, long startNanos, long endNanos){
+      long rootStart = getLong(root, START);
+      int left = getInt(root, LEFT), right = getInt(root, RIGHT);
+      if(rootStart == startNanos && getLong(root, END) == endNanos){
+         //Case 1: Root has at most one child
+         if(left == NIL || right == NIL){
+            freeNode(root);
+            return left != NIL ? left : right;
+         }
+         //Case 2: Root has both sub-trees; move the in-order successor's interval here and delete the successor
+         int successor = right;
+         while(getInt(successor, LEFT) != NIL)
+            successor = getInt(successor, LEFT);
+         long successorStart = getLong(successor, START), successorEnd = getLong(successor, END);
+         setLong(root, START, successorStart);
+         setLong(root, END, successorEnd);
+         setInt(root, RIGHT, deleteIntervalUtil(right, successorStart, successorEnd));
+      }
+      else if(startNanos < rootStart)
+         setInt(root, LEFT, deleteIntervalUtil(left, startNanos, endNanos));
+      else if(startNanos > rootStart)
+         setInt(root, RIGHT, deleteIntervalUtil(right, startNanos, endNanos));
+      //Same start time: rotations can leave such intervals on either side of this node
+      else if(containsInterval(left, startNanos, endNanos))
+         setInt(root, LEFT, deleteIntervalUtil(left, startNanos, endNanos));
+      else
+         setInt(root, RIGHT, deleteIntervalUtil(right, startNanos, endNanos));
+
+      update(root);
+      return rebalance(root);
+   }
+
+   //Checks if the subtree rooted at 'root' holds the interval [startNanos, endNanos]
+   private boolean containsInterval(int root, long startNanos, long endNanos){
+      if(root == NIL)
+         return false;
+      long rootStart = getLong(root, START);
+      if(rootStart == startNanos && getLong(root, END) == endNanos)
+         return true;
+      return (startNanos <= rootStart && containsInterval(getInt(root, LEFT), startNanos, endNanos))
+         || (startNanos >= rootStart && containsInterval(getInt(root, RIGHT), startNanos, endNanos));
+   }
+
+   //Fetches the time intervals in the interval tree which overlap with the provided time interval 'key'
+   List<TimeInterval> getOverlappingIntervals(TimeInterval key){
+      List<TimeInterval> overlappingIntervals = new ArrayList<>();
+      if(key == null)
+         return overlappingIntervals;
+      ensureOpen();
+      long keyStart = key.startNanos(), keyEnd = key.endNanos();
+      int[] stack = new int[height() + 1];
+      int top = 0;
+      if(root != NIL)
+         stack[top++] = root;
+      while(top > 0){
+         int node = stack[--top];
+         long start = getLong(node, START), end = getLong(node, END);
+         if(start < keyEnd && end > keyStart)
+            overlappingIntervals.add(TimeInterval.ofNanosOfDay(start, end));
+         //Right is pushed first so at most one pending sibling per level is on the stack
+         int left = getInt(node, LEFT), right = getInt(node, RIGHT);
+         if(right != NIL && start < keyEnd)
+            stack[top++] = right;
+         if(left != NIL && getLong(left, MAX) > keyStart)
+            stack[top++] = left;
+      }
+      return overlappingIntervals;
+   }
+
+   //Returns a list of Time Intervals held by the tree, in order of start time
+   List<TimeInterval> getTreeIntervals(){
+      ensureOpen();
+      if(root == NIL)
+         return null;
+      List<TimeInterval> treeIntervals = new ArrayList<>(size);
+      int[] stack = new int[height() + 1];
+      int top = 0, node = root;
+      while(node != NIL || top > 0){
+         while(node != NIL){
+            stack[top++] = node;
+            node = getInt(node, LEFT);
+         }
+         node = stack[--top];
+         treeIntervals.add(TimeInterval.ofNanosOfDay(getLong(node, START), getLong(node, END)));
+         node = getInt(node, RIGHT);
+      }
+      return treeIntervals;
+   }
+
+   //Number of intervals held by the tree
+   int size(){
+      return size;
+   }
+
+   //Height of the tree; an empty tree has height 0
+   int height(){
+      return root != NIL ? getInt(root, HEIGHT) : 0;
+   }
+
+   //Off-heap bytes currently allocated for node records
+   long allocatedBytes(){
+      return (long) slabCount * (RECORD_LENGTH << slabShift);
+   }
+
+   //Releases every slab; the tree cannot be used afterwards
+   @Override
+   public void close(){
+      if(closed)
+         return;
+      closed = true;
+      for(int s = 0; s < slabCount; s++){
+         BufferCleaner.clean(slabs[s]);
+         slabs[s] = null;
+      }
+      slabCount = 0;
+      root = NIL;
+      size = 0;
+   }
+
+   private void ensureOpen(){
+      if(closed)
+         throw new IllegalStateException("Off Heap Interval Tree Is Closed.");
+   }
+
+   //Recomputes height and max of a node from its children
+   private void update(int node){
+      int left = getInt(node, LEFT), right = getInt(node, RIGHT);
+      int leftHeight = left != NIL ? getInt(left, HEIGHT) : 0;
+      int rightHeight = right != NIL ? getInt(right, HEIGHT) : 0;
+      setInt(node, HEIGHT, Math.max(leftHeight, rightHeight) + 1);
+
+      long nodeMax = getLong(node, END);
+      if(left != NIL)
+         nodeMax = Math.max(nodeMax, getLong(left, MAX));
+      if(right != NIL)
+         nodeMax = Math.max(nodeMax, getLong(right, MAX));
+      setLong(node, MAX, nodeMax);
+   }
+
+   //Gets the Balance Factor (difference in heights of left and right subtrees) of a node
+   private int getBalanceFactor(int node){
+      if(node == NIL)
+         return 0;
+      int left = getInt(node, LEFT), right = getInt(node, RIGHT);
+      return (left != NIL ? getInt(left, HEIGHT) : 0) - (right != NIL ? getInt(right, HEIGHT) : 0);
+   }
+
+   //Restores the AVL property at 'node', whose children are balanced; returns the new subtree root
+   private int rebalance(int node){
+      int balanceFactor = getBalanceFactor(node);
+
+      //Left Left and Left Right Cases
+      if(balanceFactor > 1){
+         if(getBalanceFactor(getInt(node, LEFT)) < 0)
+            setInt(node, LEFT, leftRotate(getInt(node, LEFT)));
+         return rightRotate(node);
+      }
+
+      //Right Right and Right Left Cases
+      if(balanceFactor < -1){
+         if(getBalanceFactor(getInt(node, RIGHT)) > 0)
+            setInt(node, RIGHT, rightRotate(getInt(node, RIGHT)));
+         return leftRotate(node);
+      }
+      return node;
+   }
+
+   //Performs Left Rotation of the Tree Node, returns the new root
+   private int leftRotate(int node){
+      int rightChild = getInt(node, RIGHT);
+      setInt(node, RIGHT, getInt(rightChild, LEFT));
+      setInt(rightChild, LEFT, node);
+      update(node);
+      update(rightChild);
+      return rightChild;
+   }
+
+   //Performs Right Rotation of the Tree Node, returns the new root
+   private int rightRotate(int node){
+      int leftChild = getInt(node, LEFT);
+      setInt(node, LEFT, getInt(leftChild, RIGHT));
+      setInt(leftChild, RIGHT, node);
+      update(node);
+      update(leftChild);
+      return leftChild;
+   }
+
+   //Hands out a node id, preferring ids freed by earlier deletes
+   private int newNode(long startNanos, long endNanos){
+      int node;
+      if(freeList != NIL){
+         node = freeList;
+         freeList = getInt(node, LEFT);
+      }
+      else{
+         if(allocated == slabCount << slabShift)
+            addSlab();
+         node = allocated++;
+      }
+      setLong(node, START, startNanos);
+      setLong(node, END, endNanos);
+      setLong(node, MAX, endNanos);
+      setInt(node, HEIGHT, 1);
+      setInt(node, LEFT, NIL);
+      setInt(node, RIGHT, NIL);
+      return node;
+   }
+
+   //Returns a node id to the free list
+   private void freeNode(int node){
+      setInt(node, LEFT, freeList);
+      setInt(node, RIGHT, NIL);
+      freeList = node;
+   }
+
+   private void addSlab(){
+      if((long) (slabCount + 1) << slabShift > Integer.MAX_VALUE)
+         throw new IllegalStateException("Off Heap Interval Tree Is Full.");
+      if(slabCount == slabs.length)
+         slabs = Arrays.copyOf(slabs, slabCount * 2);
+      slabs[slabCount++] = ByteBuffer.allocateDirect(RECORD_LENGTH << slabShift).order(ByteOrder.nativeOrder());
+   }
+
+   private long getLong(int node, int field){
+      return slabs[node >>> slabShift].getLong((node & slabMask) * RECORD_LENGTH + field);
+   }
+
+   private void setLong(int node, int field, long value){
+      slabs[node >>> slabShift].putLong((node & slabMask) * RECORD_LENGTH + field, value);
+   }
+
+   private int getInt(int node, int field){
+      return slabs[node >>> slabShift].getInt((node & slabMask) * RECORD_LENGTH + field);
+   }
+
+   private void setInt(int node, int field, int value){
+      slabs[node >>> slabShift].putInt((node & slabMask) * RECORD_LENGTH + field, value);
+   }
+
+   /*
+   * Frees a direct buffer's memory immediately through sun.misc.Unsafe.invokeCleaner, looked up reflectively.
+   * Where that is unavailable the buffer is simply dropped and freed by the garbage collector
+   * */
+   private static final class BufferCleaner {
+      private static final Object UNSAFE;
+      private static final Method INVOKE_CLEANER;
+
+      static {
+         Object unsafe = null;
+         Method invokeCleaner = null;
+         try{
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            unsafe = theUnsafe.get(null);
+            invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+         }
+         catch(ReflectiveOperationException | RuntimeException e){
+            unsafe = null;
+            invokeCleaner = null;
+         }
+         UNSAFE = unsafe;
+         INVOKE_CLEANER = invokeCleaner;
+      }
+
+      static void clean(ByteBuffer buffer){
+         if(INVOKE_CLEANER == null)
+            return;
+         try{
+            INVOKE_CLEANER.invoke(UNSAFE, buffer);
+         }
+         catch(ReflectiveOperationException e){
+            //Left to the garbage collector
+         }
+      }
+   }
+}
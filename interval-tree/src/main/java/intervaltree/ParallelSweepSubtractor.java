@@ -0,0 +1,275 @@
+/***************************************************************************
+ * COPYRIGHT (C) 2018, Munish Bhatia.
+ * All rights reserved. This material contains unpublished, copyrighted
+ * work including confidential and proprietary information.
+ ***************************************************************************/
+
+package intervaltree;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/*
+* This class subtracts one list of time intervals from another on a ForkJoinPool
+* The day is split into contiguous time-of-day ranges at quantiles of the input; intervals are clipped at the range
+* boundaries, every range is swept independently, and fragments cut apart only by a boundary are stitched back together.
+* The residuals are exactly those of SortAndSweepSubtractor.subtract
+* */
+class ParallelSweepSubtractor {
+   //Below this many intervals in total the lists are subtracted on the calling thread
+   static final int SEQUENTIAL_THRESHOLD = 1 << 13;
+   //Ranges created per worker thread, so a range that turns out heavier than the others does not hold up the rest
+   private static final int RANGES_PER_THREAD = 4;
+   //Points sampled per range when choosing boundaries
+   private static final int SAMPLES_PER_RANGE = 32;
+
+   private ParallelSweepSubtractor() {
+   }
+
+   //Returns (subtractFrom - subtractThese), sorted by start time, using the common ForkJoinPool
+   static List<TimeInterval> subtract(List<TimeInterval> subtractFrom, List<TimeInterval> subtractThese){
+      ForkJoinPool pool = ForkJoinPool.commonPool();
+      return subtract(subtractFrom, subtractThese, pool, pool.getParallelism() * RANGES_PER_THREAD);
+   }
+
+   //Returns (subtractFrom - subtractThese), sorted by start time, splitting the day into at most 'maxRanges' ranges
+   static List<TimeInterval> subtract(List<TimeInterval> subtractFrom, List<TimeInterval> subtractThese, ForkJoinPool pool, int maxRanges){
+      return subtract(subtractFrom, subtractThese, pool, maxRanges, SEQUENTIAL_THRESHOLD);
+   }
+
+   /*As above, subtracting on the calling thread below 'sequentialThreshold' intervals in total rather than
+   * SEQUENTIAL_THRESHOLD; a threshold of 0 always takes the partitioned path, so tests can exercise it on small input*/
+   static List<TimeInterval> subtract(List<TimeInterval> subtractFrom, List<TimeInterval> subtractThese, ForkJoinPool pool, int maxRanges, int sequentialThreshold){
+      List<TimeInterval> minuends = withoutNulls(subtractFrom), operands = withoutNulls(subtractThese);
+      if(minuends.isEmpty() || minuends.size() + operands.size() < sequentialThreshold || maxRanges < 2)
+         return SortAndSweepSubtractor.subtract(minuends, operands);
+
+      LocalTime[] rangeStarts = chooseRangeStarts(minuends, operands, maxRanges);
+      Partition partition = new Partition(rangeStarts);
+      partition.addMinuends(minuends);
+      partition.addOperands(operands);
+
+      List<List<ClippedInterval>> rangeResiduals = pool.invoke(new RangeTask(partition, 0, rangeStarts.length));
+
+      List<TimeInterval> residuals = partition.stitch(rangeResiduals);
+      residuals.sort(SortAndSweepSubtractor.BY_START_THEN_END);
+      return residuals;
+   }
+
+   /*Picks range start times at quantiles of a strided sample of the interval end points, so ranges hold similar
+   * amounts of work. The first range always starts at midnight; duplicate quantiles collapse into one range*/
+   static LocalTime[] chooseRangeStarts(List<TimeInterval> minuends, List<TimeInterval> operands, int maxRanges){
+      int total = minuends.size() + operands.size();
+      int sampleSize = Math.min(total, maxRanges * SAMPLES_PER_RANGE);
+      LocalTime[] sample = new LocalTime[sampleSize * 2];
+      for(int s = 0; s < sampleSize; s++){
+         int index = (int) ((long) s * total / sampleSize);
+         TimeInterval interval = index < minuends.size() ? minuends.get(index) : operands.get(index - minuends.size());
+         sample[2 * s] = interval.start;
+         sample[2 * s + 1] = interval.end;
+      }
+      Arrays.sort(sample);
+
+      List<LocalTime> rangeStarts = new ArrayList<>(maxRanges);
+      rangeStarts.add(LocalTime.MIN);
+      for(int r = 1; r < maxRanges; r++){
+         LocalTime boundary = sample[(int) ((long) r * sample.length / maxRanges)];
+         if(boundary.isAfter(rangeStarts.get(rangeStarts.size() - 1)))
+            rangeStarts.add(boundary);
+      }
+      return rangeStarts.toArray(new LocalTime[0]);
+   }
+
+   private static List<TimeInterval> withoutNulls(List<TimeInterval> intervals){
+      List<TimeInterval> copy = new ArrayList<>(intervals == null ? 0 : intervals.size());
+      if(intervals != null)
+         for(TimeInterval interval:intervals)
+            if(interval != null)
+               copy.add(interval);
+      return copy;
+   }
+
+   /*
+   * A piece of a minuend clipped to one range, remembering which minuend it came from
+   * */
+   private static class ClippedInterval {
+      final TimeInterval interval;
+      final int owner;
+
+      ClippedInterval(TimeInterval interval, int owner) {
+         this.interval = interval;
+         this.owner = owner;
+      }
+   }
+
+   /*
+   * The inputs clipped to each range, plus what happens exactly at each boundary
+   * */
+   private static class Partition {
+      final LocalTime[] rangeStarts;
+      final List<List<ClippedInterval>> minuendPieces = new ArrayList<>();
+      final List<List<TimeInterval>> operandPieces = new ArrayList<>();
+      //cutAt[r]: a zero length operand sits exactly at rangeStarts[r], so fragments meeting there stay apart
+      final boolean[] cutAt;
+      //coveredAt[r]: rangeStarts[r] lies strictly inside some operand
+      final boolean[] coveredAt;
+      //Zero length minuends sitting exactly at a boundary; they survive unless the boundary is covered
+      final List<TimeInterval> boundaryPoints = new ArrayList<>();
+
+      Partition(LocalTime[] rangeStarts) {
+         this.rangeStarts = rangeStarts;
+         this.cutAt = new boolean[rangeStarts.length];
+         this.coveredAt = new boolean[rangeStarts.length];
+         for(int r = 0; r < rangeStarts.length; r++){
+            minuendPieces.add(new ArrayList<>());
+            operandPieces.add(new ArrayList<>());
+         }
+      }
+
+      LocalTime rangeEnd(int range){
+         return range + 1 < rangeStarts.length ? rangeStarts[range + 1] : LocalTime.MAX;
+      }
+
+      //Index of the range holding instant 't'
+      int rangeOf(LocalTime t){
+         int lo = 0, hi = rangeStarts.length - 1;
+         while(lo < hi){
+            int mid = (lo + hi + 1) >>> 1;
+            if(rangeStarts[mid].isAfter(t))
+               hi = mid - 1;
+            else
+               lo = mid;
+         }
+         return lo;
+      }
+
+      void addMinuends(List<TimeInterval> minuends){
+         for(int owner = 0; owner < minuends.size(); owner++){
+            TimeInterval minuend = minuends.get(owner);
+            int range = rangeOf(minuend.start);
+            if(minuend.start.equals(minuend.end)){
+               if(range > 0 && rangeStarts[range].equals(minuend.start))
+                  boundaryPoints.add(minuend);
+               else
+                  minuendPieces.get(range).add(new ClippedInterval(minuend, owner));
+               continue;
+            }
+            for(; range < rangeStarts.length && rangeStarts[range].isBefore(minuend.end); range++)
+               minuendPieces.get(range).add(new ClippedInterval(clip(minuend, range), owner));
+         }
+      }
+
+      void addOperands(List<TimeInterval> operands){
+         for(TimeInterval operand:operands){
+            int range = rangeOf(operand.start);
+            if(operand.start.equals(operand.end)){
+               if(rangeStarts[range].equals(operand.start))
+                  cutAt[range] = true;
+               else
+                  operandPieces.get(range).add(operand);
+               continue;
+            }
+            for(; range < rangeStarts.length && rangeStarts[range].isBefore(operand.end); range++){
+               if(rangeStarts[range].isAfter(operand.start))
+                  coveredAt[range] = true;
+               operandPieces.get(range).add(clip(operand, range));
+            }
+         }
+      }
+
+      private TimeInterval clip(TimeInterval interval, int range){
+         LocalTime start = TimeInterval.max(interval.start, rangeStarts[range]);
+         LocalTime end = interval.end.isBefore(rangeEnd(range)) ? interval.end : rangeEnd(range);
+         return (start.equals(interval.start) && end.equals(interval.end)) ? interval : new TimeInterval(start, end);
+      }
+
+      //Sweeps the pieces of one range against that range's operands
+      List<ClippedInterval> subtractRange(int range){
+         List<ClippedInterval> pieces = minuendPieces.get(range);
+         pieces.sort(Comparator.comparing((ClippedInterval c) -> c.interval, SortAndSweepSubtractor.BY_START_THEN_END));
+         List<TimeInterval> cuts = SortAndSweepSubtractor.mergeOperands(operandPieces.get(range));
+
+         List<ClippedInterval> residuals = new ArrayList<>(pieces.size());
+         List<TimeInterval> fragments = new ArrayList<>(2);
+         int firstCut = 0;
+         for(ClippedInterval piece:pieces){
+            while(firstCut < cuts.size() && !cuts.get(firstCut).end.isAfter(piece.interval.start))
+               firstCut++;
+            fragments.clear();
+            SortAndSweepSubtractor.subtractCuts(piece.interval, cuts, firstCut, fragments);
+            for(TimeInterval fragment:fragments)
+               residuals.add(new ClippedInterval(fragment, piece.owner));
+         }
+         return residuals;
+      }
+
+      /*Re-joins fragments of the same minuend that meet at a boundary nothing was subtracted at.
+      * A fragment of range r ending at the boundary is held back until range r+1 shows whether it continues*/
+      List<TimeInterval> stitch(List<List<ClippedInterval>> rangeResiduals){
+         List<TimeInterval> residuals = new ArrayList<>();
+         Map<Integer, TimeInterval> open = new HashMap<>();
+         for(int range = 0; range < rangeResiduals.size(); range++){
+            LocalTime start = rangeStarts[range], end = rangeEnd(range);
+            Map<Integer, TimeInterval> stillOpen = new HashMap<>();
+            for(ClippedInterval fragment:rangeResiduals.get(range)){
+               TimeInterval interval = fragment.interval;
+               TimeInterval previous = open.get(fragment.owner);
+               if(previous != null && !cutAt[range] && interval.start.equals(start)){
+                  open.remove(fragment.owner);
+                  interval = new TimeInterval(previous.start, interval.end);
+               }
+               if(range + 1 < rangeResiduals.size() && interval.end.equals(end) && !interval.start.equals(interval.end))
+                  stillOpen.put(fragment.owner, interval);
+               else
+                  residuals.add(interval);
+            }
+            residuals.addAll(open.values());
+            open = stillOpen;
+         }
+         residuals.addAll(open.values());
+
+         for(TimeInterval point:boundaryPoints)
+            if(!coveredAt[rangeOf(point.start)])
+               residuals.add(point);
+         return residuals;
+      }
+   }
+
+   /*
+   * Subtracts ranges [from, to) of a partition, forking halves until a single range is left
+   * */
+   private static class RangeTask extends RecursiveTask<List<List<ClippedInterval>>> {
+      private static final long serialVersionUID = 1L;
+
+      private final Partition partition;
+      private final int from, to;
+
+      RangeTask(Partition partition, int from, int to) {
+         this.partition = partition;
+         this.from = from;
+         this.to = to;
+      }
+
+      @Override
+      protected List<List<ClippedInterval>> compute(){
+         if(to - from == 1){
+            List<List<ClippedInterval>> result = new ArrayList<>();
+            result.add(partition.subtractRange(from));
+            return result;
+         }
+         int mid = (from + to) >>> 1;
+         RangeTask right = new RangeTask(partition, mid, to);
+         right.fork();
+         List<List<ClippedInterval>> result = new RangeTask(partition, from, mid).compute();
+         result.addAll(right.join());
+         return result;
+      }
+   }
+}
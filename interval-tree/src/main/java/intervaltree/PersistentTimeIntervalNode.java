@@ -0,0 +1,41 @@
+/***************************************************************************
+ * COPYRIGHT (C) 2018, Munish Bhatia.
+ * All rights reserved. This material contains unpublished, copyrighted
+ * work including confidential and proprietary information.
+ ***************************************************************************/
+
+package intervaltree;
+
+import java.time.LocalTime;
+
+/*
+* This class represents an immutable Node in the ConcurrentTimeIntervalTree
+* Height and max are computed once, from the children, when the node is created
+* */
+final class PersistentTimeIntervalNode {
+   final TimeInterval interval;
+   final PersistentTimeIntervalNode left, right;
+   final int height;
+   final LocalTime max;
+
+   //Constructor
+   PersistentTimeIntervalNode(TimeInterval interval, PersistentTimeIntervalNode left, PersistentTimeIntervalNode right) {
+      this.interval = interval;
+      this.left = left;
+      this.right = right;
+      this.height = Math.max(height(left), height(right)) + 1;
+      this.max = TimeInterval.max(interval.end, TimeInterval.max(left!=null?left.max:LocalTime.MIN, right!=null?right.max:LocalTime.MIN));
+   }
+
+   static int height(PersistentTimeIntervalNode node){
+      return node != null ? node.height : 0;
+   }
+
+   //Checks if this subtree holds time interval 'key'
+   boolean contains(TimeInterval key){
+      if(interval.equals(key))
+         return true;
+      int comparison = key.compareTo(interval);
+      return (comparison <= 0 && left != null && left.contains(key)) || (comparison >= 0 && right != null && right.contains(key));
+   }
+}
@@ -0,0 +1,298 @@
+/***************************************************************************
+ * COPYRIGHT (C) 2018, Munish Bhatia.
+ * All rights reserved. This material contains unpublished, copyrighted
+ * work including confidential and proprietary information.
+ ***************************************************************************/
+
+package intervaltree;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/*
+* This class models a Balanced Interval Tree keyed by nanos-of-day instead of LocalTime
+* Node fields are kept in parallel primitive arrays indexed by node id, so the tree holds no per-node objects
+* Deleted node ids are recycled through a free list threaded through the 'left' array
+* */
+class PrimitiveTimeIntervalTree {
+   private static final int NIL = -1;
+   private static final int INITIAL_CAPACITY = 16;
+
+   private long[] start = new long[INITIAL_CAPACITY];
+   private long[] end = new long[INITIAL_CAPACITY];
+   private long[] max = new long[INITIAL_CAPACITY];
+   private int[] height = new int[INITIAL_CAPACITY];
+   private int[] left = new int[INITIAL_CAPACITY];
+   private int[] right = new int[INITIAL_CAPACITY];
+
+   private int root = NIL;
+   private int size = 0;
+   //Number of node ids handed out so far, and head of the list of ids freed by deletes
+   private int allocated = 0;
+   private int freeList = NIL;
+   //Reused by overlap queries to collect node ids
+   private int[] scratch = new int[INITIAL_CAPACITY];
+
+   //Inserts a collection of Time Intervals to this Interval Tree
+   public void insertIntervals(TimeInterval... intervals){
+      for(TimeInterval interval:intervals)
+         insertInterval(interval);
+   }
+
+   //Inserts a single time interval to the interval tree
+   public void insertInterval(TimeInterval i){
+      if(null == i)
+         return;
+      insertInterval(i.startNanos(), i.endNanos());
+   }
+
+   //Inserts the interval [startNanos, endNanos] (nanos-of-day) to the interval tree
+   public void insertInterval(long startNanos, long endNanos){
+      if(startNanos > endNanos)
+         throw new IllegalArgumentException("Start Time Cannot be After End Time In an Interval.");
+      root = insertIntervalUtil(root, newNode(startNanos, endNanos));
+      size++;
+   }
+
+   //Util method to perform interval insertion
+   private int insertIntervalUtil(int root, int node){
+      //Base Case: Empty SubTree
+      if(root == NIL)
+         return node;
+
+      //Determine which side of the root does this node belong to
+      if(start[node] <= start[root])
+         left[root] = insertIntervalUtil(left[root], node);
+      else
+         right[root] = insertIntervalUtil(right[root], node);
+
+      update(root);
+      return rebalance(root);
+   }
+
+   //Deletes a given time interval from the interval tree
+   public void deleteInterval(TimeInterval key){
+      if(null == key)
+         return;
+      deleteInterval(key.startNanos(), key.endNanos());
+   }
+
+   //Deletes the interval [startNanos, endNanos] (nanos-of-day) from the interval tree, if present
+   public void deleteInterval(long startNanos, long endNanos){
+      if(root == NIL || !containsInterval(root, startNanos, endNanos))
+         return;
+      root = deleteIntervalUtil(root, startNanos, endNanos);
+      size--;
+   }
+
+   //Util method to perform interval deletion; the interval is known to be present in the subtree
+   private int deleteIntervalUtil(int root, long startNanos, long endNanos){
+      if(start[root] == startNanos && end[root] == endNanos){
+         //Case 1: Root has at most one child
+         if(left[root] == NIL || right[root] == NIL){
+            int child = left[root] != NIL ? left[root] : right[root];
+            freeNode(root);
+            return child;
+         }
+         //Case 2: Root has both sub-trees; move the in-order successor's interval here and delete the successor
+         int successor = right[root];
+         while(left[successor] != NIL)
+            successor = left[successor];
+         start[root] = start[successor];
+         end[root] = end[successor];
+         right[root] = deleteIntervalUtil(right[root], start[root], end[root]);
+      }
+      else if(startNanos < start[root])
+         left[root] = deleteIntervalUtil(left[root], startNanos, endNanos);
+      else if(startNanos > start[root])
+         right[root] = deleteIntervalUtil(right[root], startNanos, endNanos);
+      //Same start time: rotations can leave such intervals on either side of this node
+      else if(containsInterval(left[root], startNanos, endNanos))
+         left[root] = deleteIntervalUtil(left[root], startNanos, endNanos);
+      else
+         right[root] = deleteIntervalUtil(right[root], startNanos, endNanos);
+
+      update(root);
+      return rebalance(root);
+   }
+
+   //Checks if the subtree rooted at 'root' holds the interval [startNanos, endNanos]
+   private boolean containsInterval(int root, long startNanos, long endNanos){
+      if(root == NIL)
+         return false;
+      if(start[root] == startNanos && end[root] == endNanos)
+         return true;
+      return (startNanos <= start[root] && containsInterval(left[root], startNanos, endNanos))
+         || (startNanos >= start[root] && containsInterval(right[root], startNanos, endNanos));
+   }
+
+   //Fetches the time intervals in the interval tree which overlap with the provided time interval 'key'
+   List<TimeInterval> getOverlappingIntervals(TimeInterval key){
+      List<TimeInterval> overlappingIntervals = new ArrayList<>();
+      if(key == null)
+         return overlappingIntervals;
+      int[] nodes = getOverlappingNodes(key.startNanos(), key.endNanos());
+      for(int node:nodes)
+         overlappingIntervals.add(toTimeInterval(node));
+      return overlappingIntervals;
+   }
+
+   //Fetches the ids of the nodes whose intervals overlap with the key [keyStart, keyEnd]; ids stay valid until the next delete
+   int[] getOverlappingNodes(long keyStart, long keyEnd){
+      int count = getOverlappingNodesUtil(root, keyStart, keyEnd, 0);
+      return Arrays.copyOf(scratch, count);
+   }
+
+   //Appends overlapping node ids of the subtree rooted at 'root' to the scratch buffer, returns the new count
+   private int getOverlappingNodesUtil(int root, long keyStart, long keyEnd, int count){
+      if(root == NIL)
+         return count;
+      if(start[root] < keyEnd && end[root] > keyStart){
+         if(count == scratch.length)
+            scratch = Arrays.copyOf(scratch, count * 2);
+         scratch[count++] = root;
+      }
+      if(left[root] != NIL && max[left[root]] > keyStart)
+         count = getOverlappingNodesUtil(left[root], keyStart, keyEnd, count);
+      if(right[root] != NIL && start[root] < keyEnd)
+         count = getOverlappingNodesUtil(right[root], keyStart, keyEnd, count);
+      return count;
+   }
+
+   //Returns a list of Time Intervals held by the tree, in order of start time
+   List<TimeInterval> getTreeIntervals(){
+      if(root == NIL)
+         return null;
+      List<TimeInterval> treeIntervals = new ArrayList<>(size);
+      getTreeIntervalsUtil(root, treeIntervals);
+      return treeIntervals;
+   }
+
+   private void getTreeIntervalsUtil(int root, List<TimeInterval> treeIntervals){
+      if(root == NIL)
+         return;
+      getTreeIntervalsUtil(left[root], treeIntervals);
+      treeIntervals.add(toTimeInterval(root));
+      getTreeIntervalsUtil(right[root], treeIntervals);
+   }
+
+   //Number of intervals held by the tree
+   int size(){
+      return size;
+   }
+
+   //Start (nanos-of-day) of the interval held by node 'node'
+   long startNanos(int node){
+      return start[node];
+   }
+
+   //End (nanos-of-day) of the interval held by node 'node'
+   long endNanos(int node){
+      return end[node];
+   }
+
+   //Converts the interval held by node 'node' back to a TimeInterval
+   TimeInterval toTimeInterval(int node){
+      return TimeInterval.ofNanosOfDay(start[node], end[node]);
+   }
+
+   //Recomputes height and max of a node from its children
+   private void update(int node){
+      int leftHeight = left[node] != NIL ? height[left[node]] : 0;
+      int rightHeight = right[node] != NIL ? height[right[node]] : 0;
+      height[node] = Math.max(leftHeight, rightHeight) + 1;
+
+      long nodeMax = end[node];
+      if(left[node] != NIL && max[left[node]] > nodeMax)
+         nodeMax = max[left[node]];
+      if(right[node] != NIL && max[right[node]] > nodeMax)
+         nodeMax = max[right[node]];
+      max[node] = nodeMax;
+   }
+
+   //Gets the Balance Factor (difference in heights of left and right subtrees) of a node
+   private int getBalanceFactor(int node){
+      if(node == NIL)
+         return 0;
+      return (left[node] != NIL ? height[left[node]] : 0) - (right[node] != NIL ? height[right[node]] : 0);
+   }
+
+   //Restores the AVL property at 'node', whose children are balanced; returns the new subtree root
+   private int rebalance(int node){
+      int balanceFactor = getBalanceFactor(node);
+
+      //Left Left and Left Right Cases
+      if(balanceFactor > 1){
+         if(getBalanceFactor(left[node]) < 0)
+            left[node] = leftRotate(left[node]);
+         return rightRotate(node);
+      }
+
+      //Right Right and Right Left Cases
+      if(balanceFactor < -1){
+         if(getBalanceFactor(right[node]) > 0)
+            right[node] = rightRotate(right[node]);
+         return leftRotate(node);
+      }
+      return node;
+   }
+
+   //Performs Left Rotation of the Tree Node, returns the new root
+   private int leftRotate(int node){
+      int rightChild = right[node];
+      right[node] = left[rightChild];
+      left[rightChild] = node;
+      update(node);
+      update(rightChild);
+      return rightChild;
+   }
+
+   //Performs Right Rotation of the Tree Node, returns the new root
+   private int rightRotate(int node){
+      int leftChild = left[node];
+      left[node] = right[leftChild];
+      right[leftChild] = node;
+      update(node);
+      update(leftChild);
+      return leftChild;
+   }
+
+   //Hands out a node id, preferring ids freed by earlier deletes
+   private int newNode(long startNanos, long endNanos){
+      int node;
+      if(freeList != NIL){
+         node = freeList;
+         freeList = left[node];
+      }
+      else{
+         if(allocated == start.length)
+            grow();
+         node = allocated++;
+      }
+      start[node] = startNanos;
+      end[node] = endNanos;
+      max[node] = endNanos;
+      height[node] = 1;
+      left[node] = NIL;
+      right[node] = NIL;
+      return node;
+   }
+
+   //Returns a node id to the free list
+   private void freeNode(int node){
+      left[node] = freeList;
+      right[node] = NIL;
+      freeList = node;
+   }
+
+   private void grow(){
+      int capacity = start.length * 2;
+      start = Arrays.copyOf(start, capacity);
+      end = Arrays.copyOf(end, capacity);
+      max = Arrays.copyOf(max, capacity);
+      height = Arrays.copyOf(height, capacity);
+      left = Arrays.copyOf(left, capacity);
+      right = Arrays.copyOf(right, capacity);
+   }
+}
@@ -0,0 +1,55 @@
+/***************************************************************************
+ * COPYRIGHT (C) 2018, Munish Bhatia.
+ * All rights reserved. This material contains unpublished, copyrighted
+ * work including confidential and proprietary information.
+ ***************************************************************************/
+
+package intervaltree;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/*
+* This class guards a BalancedTimeIntervalTree with a ReentrantReadWriteLock
+* It is the baseline ConcurrentTimeIntervalTree is measured against. Overlap queries run concurrently under the read lock
+* */
+class ReadWriteLockedTimeIntervalTree {
+   private final BalancedTimeIntervalTree tree = new BalancedTimeIntervalTree();
+   private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+   //Inserts a single time interval to the interval tree
+   public void insertInterval(TimeInterval i){
+      lock.writeLock().lock();
+      try{
+         tree.insertInterval(i);
+      }
+      finally{
+         lock.writeLock().unlock();
+      }
+   }
+
+   //Deletes a given time interval from the interval tree
+   public void deleteInterval(TimeInterval key){
+      lock.writeLock().lock();
+      try{
+         tree.deleteInterval(key);
+      }
+      finally{
+         lock.writeLock().unlock();
+      }
+   }
+
+   //Fetches the time intervals in the interval tree which overlap with the provided time interval 'key'
+   List<TimeInterval> getOverlappingIntervals(TimeInterval key){
+      List<TimeInterval> overlappingIntervals = new ArrayList<>();
+      lock.readLock().lock();
+      try{
+         tree.visitOverlappingIntervals(key, node -> overlappingIntervals.add(node.interval));
+      }
+      finally{
+         lock.readLock().unlock();
+      }
+      return overlappingIntervals;
+   }
+}
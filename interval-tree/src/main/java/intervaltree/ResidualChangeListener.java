@@ -0,0 +1,17 @@
+/***************************************************************************
+ * COPYRIGHT (C) 2018, Munish Bhatia.
+ * All rights reserved. This material contains unpublished, copyrighted
+ * work including confidential and proprietary information.
+ ***************************************************************************/
+package intervaltree;
+
+import java.util.List;
+
+/*
+* Callback for changes to an IncrementalResidualView
+* */
+@FunctionalInterface
+interface ResidualChangeListener {
+   //Receives the residual intervals an operand event removed and added, each sorted by start time; neither is empty at once
+   void residualsChanged(List<TimeInterval> removed, List<TimeInterval> added);
+}
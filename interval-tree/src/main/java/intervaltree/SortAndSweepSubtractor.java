@@ -0,0 +1,105 @@
+/***************************************************************************
+ * COPYRIGHT (C) 2018, Munish Bhatia.
+ * All rights reserved. This material contains unpublished, copyrighted
+ * work including confidential and proprietary information.
+ ***************************************************************************/
+
+package intervaltree;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/*
+* This class subtracts one list of time intervals from another by sorting both lists once
+* and sweeping them together, O((n+m) log(n+m)) overall.
+* The residuals are the same as those produced by the interval tree path:
+* (9:00-10:00) - (9:30-9:30) = (9:00-9:30), (9:30-10:00)
+* (9:00-10:00) - (9:15-9:30), (9:30-9:45) = (9:00-9:15), (9:45-10:00)
+* */
+class SortAndSweepSubtractor {
+   static final Comparator<TimeInterval> BY_START_THEN_END = Comparator.comparing((TimeInterval t) -> t.start).thenComparing(t -> t.end);
+
+   private SortAndSweepSubtractor() {
+   }
+
+   //Returns (subtractFrom - subtractThese), sorted by start time
+   static List<TimeInterval> subtract(List<TimeInterval> subtractFrom, List<TimeInterval> subtractThese){
+      List<TimeInterval> residuals = new ArrayList<>();
+      if(subtractFrom == null || subtractFrom.isEmpty())
+         return residuals;
+
+      List<TimeInterval> minuends = sortedCopy(subtractFrom);
+      List<TimeInterval> cuts = mergeOperands(subtractThese);
+
+      //Index of the first cut that ends after the current minuend starts; minuends are sorted so it only moves forward
+      int firstCut = 0;
+      for(TimeInterval minuend:minuends){
+         while(firstCut < cuts.size() && !cuts.get(firstCut).end.isAfter(minuend.start))
+            firstCut++;
+         subtractCuts(minuend, cuts, firstCut, residuals);
+      }
+
+      //Fragments of overlapping minuends interleave, restore start time order
+      residuals.sort(BY_START_THEN_END);
+      return residuals;
+   }
+
+   /*Sorts the operands and coalesces those that overlap into disjoint cuts.
+   * Touching operands are kept apart: a zero length interval at the shared instant is not strictly inside either of them.
+   * A zero length cut (p-p) removes the single instant p, splitting any interval that strictly contains it*/
+   static List<TimeInterval> mergeOperands(List<TimeInterval> operands){
+      List<TimeInterval> cuts = new ArrayList<>();
+      if(operands == null || operands.isEmpty())
+         return cuts;
+
+      LocalTime cutStart = null, cutEnd = null;
+      for(TimeInterval operand:sortedCopy(operands)){
+         if(cutStart != null && operand.start.isBefore(cutEnd)){
+            cutEnd = TimeInterval.max(cutEnd, operand.end);
+            continue;
+         }
+         if(cutStart != null)
+            cuts.add(new TimeInterval(cutStart, cutEnd));
+         cutStart = operand.start;
+         cutEnd = operand.end;
+      }
+      cuts.add(new TimeInterval(cutStart, cutEnd));
+      return cuts;
+   }
+
+   //Appends the pieces of 'minuend' left over after removing the disjoint, sorted cuts starting at index 'firstCut'
+   static void subtractCuts(TimeInterval minuend, List<TimeInterval> cuts, int firstCut, List<TimeInterval> residuals){
+      //A zero length minuend only disappears when it lies strictly inside a cut
+      if(minuend.start.equals(minuend.end)){
+         if(firstCut >= cuts.size() || !cuts.get(firstCut).start.isBefore(minuend.start))
+            residuals.add(minuend);
+         return;
+      }
+
+      LocalTime position = minuend.start;
+      boolean trimmed = false;
+      for(int c = firstCut; c < cuts.size() && cuts.get(c).start.isBefore(minuend.end); c++){
+         TimeInterval cut = cuts.get(c);
+         if(cut.start.isAfter(position))
+            residuals.add(new TimeInterval(position, cut.start));
+         position = TimeInterval.max(position, cut.end);
+         trimmed = true;
+      }
+
+      if(!trimmed)
+         residuals.add(minuend);
+      else if(position.isBefore(minuend.end))
+         residuals.add(new TimeInterval(position, minuend.end));
+   }
+
+   private static List<TimeInterval> sortedCopy(List<TimeInterval> intervals){
+      List<TimeInterval> sorted = new ArrayList<>(intervals.size());
+      for(TimeInterval interval:intervals)
+         if(interval != null)
+            sorted.add(interval);
+      sorted.sort(BY_START_THEN_END);
+      return sorted;
+   }
+}
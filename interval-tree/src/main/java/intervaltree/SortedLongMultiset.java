@@ -0,0 +1,161 @@
+/***************************************************************************
+ * COPYRIGHT (C) 2018, Munish Bhatia.
+ * All rights reserved. This material contains unpublished, copyrighted
+ * work including confidential and proprietary information.
+ ***************************************************************************/
+package intervaltree;
+
+/*
+* This class is a multiset of long values kept in an AVL tree augmented with subtree counts
+* It answers "how many values are below x" in O(log n). BalancedTimeIntervalTree uses it to rank interval end times,
+* which its own start time ordering cannot do
+* */
+class SortedLongMultiset {
+   private Node root = null;
+
+   private static final class Node {
+      final long value;
+      int copies = 1, count = 1, height = 1;
+      Node left, right;
+
+      Node(long value){
+         this.value = value;
+      }
+   }
+
+   //Number of values held, counting duplicates
+   int size(){
+      return count(root);
+   }
+
+   //Adds one copy of 'value'
+   void add(long value){
+      root = add(root, value);
+   }
+
+   /*Removes one copy of 'value', returns false if it was not held
+   * A value is only unlinked once its last copy goes, so the removal itself never needs a successor swap*/
+   boolean remove(long value){
+      Node node = root;
+      while(node != null && node.value != value)
+         node = value < node.value ? node.left : node.right;
+      if(node == null)
+         return false;
+      root = remove(root, value);
+      return true;
+   }
+
+   //Number of values strictly less than 'bound'
+   int countBelow(long bound){
+      int below = 0;
+      Node node = root;
+      while(node != null){
+         if(node.value < bound){
+            below += count(node.left) + node.copies;
+            node = node.right;
+         }
+         else
+            node = node.left;
+      }
+      return below;
+   }
+
+   //Number of values less than or equal to 'bound'
+   int countAtMost(long bound){
+      return bound == Long.MAX_VALUE ? size() : countBelow(bound + 1);
+   }
+
+   private Node add(Node node, long value){
+      if(node == null)
+         return new Node(value);
+      if(value == node.value){
+         node.copies++;
+         node.count++;
+         return node;
+      }
+      if(value < node.value)
+         node.left = add(node.left, value);
+      else
+         node.right = add(node.right, value);
+      return rebalance(node);
+   }
+
+   private Node remove(Node node, long value){
+      if(value < node.value)
+         node.left = remove(node.left, value);
+      else if(value > node.value)
+         node.right = remove(node.right, value);
+      else if(node.copies > 1){
+         node.copies--;
+         node.count--;
+         return node;
+      }
+      else if(node.left == null || node.right == null)
+         return node.left != null ? node.left : node.right;
+      else {
+         //Replace the node by its in-order successor, taken out of the right subtree
+         Node successor = node.right;
+         while(successor.left != null)
+            successor = successor.left;
+         successor.right = removeFirst(node.right);
+         successor.left = node.left;
+         node = successor;
+      }
+      return rebalance(node);
+   }
+
+   //Unlinks the leftmost node of a subtree, returns the rebalanced subtree
+   private Node removeFirst(Node node){
+      if(node.left == null)
+         return node.right;
+      node.left = removeFirst(node.left);
+      return rebalance(node);
+   }
+
+   private Node rebalance(Node node){
+      update(node);
+      int balance = height(node.left) - height(node.right);
+      if(balance > 1){
+         if(height(node.left.left) < height(node.left.right))
+            node.left = rotateLeft(node.left);
+         return rotateRight(node);
+      }
+      if(balance < -1){
+         if(height(node.right.right) < height(node.right.left))
+            node.right = rotateRight(node.right);
+         return rotateLeft(node);
+      }
+      return node;
+   }
+
+   private Node rotateLeft(Node node){
+      Node pivot = node.right;
+      node.right = pivot.left;
+      pivot.left = node;
+      update(node);
+      update(pivot);
+      return pivot;
+   }
+
+   private Node rotateRight(Node node){
+      Node pivot = node.left;
+      node.left = pivot.right;
+      pivot.right = node;
+      update(node);
+      update(pivot);
+      return pivot;
+   }
+
+   private static void update(Node node){
+      node.height = Math.max(height(node.left), height(node.right)) + 1;
+      node.count = count(node.left) + count(node.right) + node.copies;
+   }
+
+   private static int height(Node node){
+      return node != null ? node.height : 0;
+   }
+
+   private static int count(Node node){
+      return node != null ? node.count : 0;
+   }
+}
@@ -0,0 +1,175 @@
+/***************************************************************************
+ * COPYRIGHT (C) 2018, Munish Bhatia.
+ * All rights reserved. This material contains unpublished, copyrighted
+ * work including confidential and proprietary information.
+ ***************************************************************************/
+package intervaltree;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/*
+* This class subtracts one stream of time intervals from another, both sorted by start time, in a single pass.
+* It is the streaming form of SortAndSweepSubtractor and writes the same residuals in the same order:
+* operands are coalesced into cuts as they are read, and each residual is written out as soon as no later minuend
+* can produce a fragment ordered before it.
+* Working memory holds only the cuts and residuals overlapping the current minuend, never the whole input
+* */
+class StreamingSubtractor {
+
+   //Cuts overlapping the current minuend, oldest first, kept as a ring of primitive pairs
+   private long[] cutStarts = new long[16], cutEnds = new long[16];
+   private int firstCut = 0, cutCount = 0;
+   //Residuals not yet written, as a binary min-heap ordered by start then end
+   private long[] pendingStarts = new long[16], pendingEnds = new long[16];
+   private int pendingCount = 0;
+
+   //Subtracts file 'subtractThese' from file 'subtractFrom', writing the residuals to 'output'; returns the number written
+   static long subtract(Path subtractFrom, Path subtractThese, Path output, IntervalFormat format) throws IOException {
+      try(MappedIntervalReader minuends = new MappedIntervalReader(subtractFrom, format);
+          MappedIntervalReader operands = new MappedIntervalReader(subtractThese, format);
+          ChannelIntervalWriter residuals = new ChannelIntervalWriter(output, format)){
+         new StreamingSubtractor().subtract(minuends, operands, residuals);
+         return residuals.records();
+      }
+   }
+
+   /*Subtracts 'operands' from 'minuends', writing the residuals to 'residuals'
+   * Throws IllegalArgumentException if either input is not sorted by start time*/
+   void subtract(MappedIntervalReader minuends, MappedIntervalReader operands, ChannelIntervalWriter residuals){
+      boolean operandPending = operands.next();
+      long lastMinuendStart = Long.MIN_VALUE, lastOperandStart = Long.MIN_VALUE;
+
+      while(minuends.next()){
+         long start = minuends.start(), end = minuends.end();
+         if(start < lastMinuendStart)
+            throw new IllegalArgumentException("Intervals To Subtract From Must Be Sorted By Start Time (Record " + minuends.records() + ").");
+         lastMinuendStart = start;
+
+         //No later minuend starts before this one, so residuals starting earlier are final
+         while(pendingCount > 0 && pendingStarts[0] < start){
+            residuals.write(pendingStarts[0], pendingEnds[0]);
+            popPending();
+         }
+
+         //Read every operand starting before this minuend ends; only those can cut it
+         while(operandPending && operands.start() < end){
+            if(operands.start() < lastOperandStart)
+               throw new IllegalArgumentException("Intervals To Subtract Must Be Sorted By Start Time (Record " + operands.records() + ").");
+            lastOperandStart = operands.start();
+            addOperand(operands.start(), operands.end());
+            operandPending = operands.next();
+         }
+
+         //Cuts ending by this minuend's start cannot touch it or any later minuend
+         while(cutCount > 0 && cutEnds[firstCut] <= start){
+            firstCut = (firstCut + 1) % cutStarts.length;
+            cutCount--;
+         }
+
+         subtractCuts(start, end);
+      }
+
+      while(pendingCount > 0){
+         residuals.write(pendingStarts[0], pendingEnds[0]);
+         popPending();
+      }
+   }
+
+   //Coalesces an operand into the last cut when they overlap, as SortAndSweepSubtractor.mergeOperands does
+   private void addOperand(long start, long end){
+      if(cutCount > 0){
+         int last = (firstCut + cutCount - 1) % cutStarts.length;
+         if(start < cutEnds[last]){
+            cutEnds[last] = Math.max(cutEnds[last], end);
+            return;
+         }
+      }
+      if(cutCount == cutStarts.length)
+         growCuts();
+      int slot = (firstCut + cutCount) % cutStarts.length;
+      cutStarts[slot] = start;
+      cutEnds[slot] = end;
+      cutCount++;
+   }
+
+   //Queues the pieces of minuend [start, end] left over after removing the current cuts, as SortAndSweepSubtractor.subtractCuts does
+   private void subtractCuts(long start, long end){
+      //A zero length minuend only disappears when it lies strictly inside a cut
+      if(start == end){
+         if(cutCount == 0 || cutStarts[firstCut] >= start)
+            pushPending(start, end);
+         return;
+      }
+
+      long position = start;
+      boolean trimmed = false;
+      for(int c = 0; c < cutCount; c++){
+         int slot = (firstCut + c) % cutStarts.length;
+         if(cutStarts[slot] >= end)
+            break;
+         if(cutStarts[slot] > position)
+            pushPending(position, cutStarts[slot]);
+         position = Math.max(position, cutEnds[slot]);
+         trimmed = true;
+      }
+
+      if(!trimmed)
+         pushPending(start, end);
+      else if(position < end)
+         pushPending(position, end);
+   }
+
+   private void growCuts(){
+      long[] starts = new long[cutStarts.length * 2], ends = new long[cutStarts.length * 2];
+      for(int c = 0; c < cutCount; c++){
+         starts[c] = cutStarts[(firstCut + c) % cutStarts.length];
+         ends[c] = cutEnds[(firstCut + c) % cutStarts.length];
+      }
+      cutStarts = starts;
+      cutEnds = ends;
+      firstCut = 0;
+   }
+
+   private void pushPending(long start, long end){
+      if(pendingCount == pendingStarts.length){
+         pendingStarts = Arrays.copyOf(pendingStarts, pendingCount * 2);
+         pendingEnds = Arrays.copyOf(pendingEnds, pendingCount * 2);
+      }
+      int child = pendingCount++;
+      while(child > 0){
+         int parent = (child - 1) / 2;
+         if(!isBefore(start, end, pendingStarts[parent], pendingEnds[parent]))
+            break;
+         pendingStarts[child] = pendingStarts[parent];
+         pendingEnds[child] = pendingEnds[parent];
+         child = parent;
+      }
+      pendingStarts[child] = start;
+      pendingEnds[child] = end;
+   }
+
+   private void popPending(){
+      long start = pendingStarts[--pendingCount], end = pendingEnds[pendingCount];
+      int parent = 0;
+      while(true){
+         int child = 2 * parent + 1;
+         if(child >= pendingCount)
+            break;
+         if(child + 1 < pendingCount && isBefore(pendingStarts[child + 1], pendingEnds[child + 1], pendingStarts[child], pendingEnds[child]))
+            child++;
+         if(!isBefore(pendingStarts[child], pendingEnds[child], start, end))
+            break;
+         pendingStarts[parent] = pendingStarts[child];
+         pendingEnds[parent] = pendingEnds[child];
+         parent = child;
+      }
+      pendingStarts[parent] = start;
+      pendingEnds[parent] = end;
+   }
+
+   private static boolean isBefore(long start, long end, long otherStart, long otherEnd){
+      return start < otherStart || (start == otherStart && end < otherEnd);
+   }
+}
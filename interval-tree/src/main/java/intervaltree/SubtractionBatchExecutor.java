@@ -0,0 +1,358 @@
+/***************************************************************************
+ * COPYRIGHT (C) 2018, Munish Bhatia.
+ * All rights reserved. This material contains unpublished, copyrighted
+ * work including confidential and proprietary information.
+ ***************************************************************************/
+
+package intervaltree;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/*
+* This class runs many small, independent (subtractFrom - subtractThese) jobs, e.g. one per resource and day,
+* and delivers each job's residuals, never null, through a CompletableFuture.
+* Every job runs on its own virtual thread when the JVM has them (Java 21 onwards); on older JVMs it falls back to
+* a fixed pool of platform threads, one per processor.
+* At most 'capacity' jobs are accepted and not yet finished at any time: submit blocks while the executor is full and
+* trySubmit gives up after a bounded wait, so a fast producer is held back rather than queueing without limit.
+* A job cancelled, or past its deadline, before it starts is never run. One already running finishes, since the
+* subtraction engines do not check for interruption, but its result is discarded
+* */
+class SubtractionBatchExecutor implements AutoCloseable {
+   private final SubtractionEngine engine;
+   private final ExecutorService executor;
+   private final boolean virtualThreads;
+   private final int capacity;
+   private final Semaphore permits;
+   //Jobs accepted but not yet started, tracked here because a virtual thread executor has no queue to drain
+   private final Set<Task> pending = ConcurrentHashMap.newKeySet();
+   private volatile boolean shutdown = false;
+
+   //Metrics
+   private final AtomicInteger queued = new AtomicInteger(), running = new AtomicInteger(), peakQueued = new AtomicInteger();
+   private final LongAdder submitted = new LongAdder(), rejected = new LongAdder(), completed = new LongAdder(),
+         failed = new LongAdder(), cancelled = new LongAdder(), expired = new LongAdder();
+   private final LatencyHistogram queueWait = new LatencyHistogram(), runTime = new LatencyHistogram();
+   private volatile long metricsSinceNanos = System.nanoTime();
+
+   /*
+   * One subtraction job: subtractFrom - subtractThese, with an optional deadline counted from when the job is accepted
+   * */
+   static final class Job {
+      final List<TimeInterval> subtractFrom, subtractThese;
+      final Duration deadline;
+
+      //Constructor, for a job without a deadline
+      Job(List<TimeInterval> subtractFrom, List<TimeInterval> subtractThese){
+         this(subtractFrom, subtractThese, null);
+      }
+
+      //Constructor; a null deadline means the job may wait as long as it needs
+      Job(List<TimeInterval> subtractFrom, List<TimeInterval> subtractThese, Duration deadline){
+         if(subtractFrom == null || subtractThese == null)
+            throw new IllegalArgumentException("Job Interval Lists Cannot be Null.");
+         if(deadline != null && (deadline.isNegative() || deadline.isZero()))
+            throw new IllegalArgumentException("Job Deadline Must be Positive.");
+         this.subtractFrom = subtractFrom;
+         this.subtractThese = subtractThese;
+         this.deadline = deadline;
+      }
+   }
+
+   //Constructor, running jobs with 'engine' on virtual threads where available
+   SubtractionBatchExecutor(SubtractionEngine engine, int capacity) {
+      this(engine, capacity, true);
+   }
+
+   //Constructor; with 'preferVirtualThreads' false jobs always run on the platform thread pool
+   SubtractionBatchExecutor(SubtractionEngine engine, int capacity, boolean preferVirtualThreads) {
+      if(engine == null)
+         throw new IllegalArgumentException("Subtraction Engine Cannot be Null.");
+      if(capacity < 1)
+         throw new IllegalArgumentException("Batch Executor Capacity Must be Positive.");
+      this.engine = engine;
+      this.capacity = capacity;
+      this.permits = new Semaphore(capacity);
+      ExecutorService virtual = preferVirtualThreads ? newVirtualThreadExecutor() : null;
+      this.virtualThreads = virtual != null;
+      this.executor = virtual != null ? virtual : Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), platformThreadFactory());
+   }
+
+   /*Looks up Executors.newVirtualThreadPerTaskExecutor reflectively, so this class still compiles for and runs on JVMs
+   * without virtual threads. Returns null where they are missing, or are a preview feature that is not enabled*/
+   private static ExecutorService newVirtualThreadExecutor(){
+      try{
+         return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+      }
+      catch(ReflectiveOperationException | RuntimeException e){
+         return null;
+      }
+   }
+
+   //Daemon platform threads, so an executor that is never shut down does not keep the JVM alive
+   private static ThreadFactory platformThreadFactory(){
+      AtomicInteger threads = new AtomicInteger();
+      return runnable -> {
+         Thread thread = new Thread(runnable, "interval-subtraction-" + threads.incrementAndGet());
+         thread.setDaemon(true);
+         return thread;
+      };
+   }
+
+   //Submits (subtractFrom - subtractThese), waiting while the executor is full
+   CompletableFuture<List<TimeInterval>> submit(List<TimeInterval> subtractFrom, List<TimeInterval> subtractThese) throws InterruptedException {
+      return submit(new Job(subtractFrom, subtractThese));
+   }
+
+   //Submits a job, waiting while the executor is full
+   CompletableFuture<List<TimeInterval>> submit(Job job) throws InterruptedException {
+      checkRunning();
+      permits.acquire();
+      return dispatch(job);
+   }
+
+   //Submits a job if room frees up within 'maxWait'; returns null, and counts a rejection, if it does not
+   CompletableFuture<List<TimeInterval>> trySubmit(Job job, Duration maxWait) throws InterruptedException {
+      checkRunning();
+      if(!permits.tryAcquire(maxWait.toNanos(), TimeUnit.NANOSECONDS)){
+         rejected.increment();
+         return null;
+      }
+      return dispatch(job);
+   }
+
+   /*Submits every job in 'jobs' in encounter order, waiting whenever the executor is full, and returns their futures
+   * in the same order*/
+   List<CompletableFuture<List<TimeInterval>>> submitAll(Stream<Job> jobs) throws InterruptedException {
+      List<CompletableFuture<List<TimeInterval>>> futures = new ArrayList<>();
+      for(Job job : (Iterable<Job>) jobs::iterator)
+         futures.add(submit(job));
+      return futures;
+   }
+
+   //Hands an accepted job, whose permit is already held, to the executor
+   private CompletableFuture<List<TimeInterval>> dispatch(Job job){
+      Task task = new Task(job);
+      pending.add(task);
+      int depth = queued.incrementAndGet();
+      peakQueued.accumulateAndGet(depth, Math::max);
+      submitted.increment();
+      task.future.whenComplete((residuals, error) -> {
+         if(error == null)
+            completed.increment();
+         else if(error instanceof CancellationException)
+            cancelled.increment();
+         else if(error instanceof TimeoutException)
+            expired.increment();
+         else
+            failed.increment();
+      });
+      if(job.deadline != null)
+         task.future.orTimeout(job.deadline.toNanos(), TimeUnit.NANOSECONDS);
+      try{
+         executor.execute(task);
+      }
+      catch(RejectedExecutionException e){
+         pending.remove(task);
+         queued.decrementAndGet();
+         permits.release();
+         task.future.completeExceptionally(e);
+         throw new IllegalStateException("Batch Executor Is Shut Down.", e);
+      }
+      return task.future;
+   }
+
+   private void checkRunning(){
+      if(shutdown)
+         throw new IllegalStateException("Batch Executor Is Shut Down.");
+   }
+
+   /*
+   * Runs one job on a worker thread and releases its permit when done
+   * */
+   private final class Task implements Runnable {
+      final Job job;
+      final CompletableFuture<List<TimeInterval>> future = new CompletableFuture<>();
+      final long acceptedNanos = System.nanoTime();
+
+      Task(Job job) {
+         this.job = job;
+      }
+
+      @Override
+      public void run(){
+         pending.remove(this);
+         queued.decrementAndGet();
+         try{
+            //Cancelled or past its deadline while waiting
+            if(future.isDone())
+               return;
+            long started = System.nanoTime();
+            queueWait.record(started - acceptedNanos);
+            running.incrementAndGet();
+            try{
+               future.complete(engine.subtract(job.subtractFrom, job.subtractThese));
+            }
+            catch(Throwable t){
+               future.completeExceptionally(t);
+            }
+            finally{
+               running.decrementAndGet();
+               runTime.record(System.nanoTime() - started);
+            }
+         }
+         finally{
+            permits.release();
+         }
+      }
+   }
+
+   //Stops accepting jobs; those already accepted still run
+   void shutdown(){
+      shutdown = true;
+      executor.shutdown();
+   }
+
+   /*Stops accepting jobs and cancels those that have not started; returns how many were cancelled
+   * Jobs the platform pool drops from its queue give back their permits here; on virtual threads every job already has
+   * a thread, which starts, finds its job cancelled and gives the permit back itself*/
+   int shutdownNow(){
+      shutdown = true;
+      List<Runnable> neverRun = executor.shutdownNow();
+      int cancelledJobs = 0;
+      for(Task task : pending){
+         if(task.future.cancel(false))
+            cancelledJobs++;
+      }
+      for(Runnable runnable : neverRun){
+         if(runnable instanceof Task && pending.remove(runnable)){
+            queued.decrementAndGet();
+            permits.release();
+         }
+      }
+      return cancelledJobs;
+   }
+
+   //Waits up to 'timeout' for accepted jobs to finish after a shutdown; returns false if some are still running
+   boolean awaitTermination(Duration timeout) throws InterruptedException {
+      return executor.awaitTermination(timeout.toNanos(), TimeUnit.NANOSECONDS);
+   }
+
+   /*Shuts down and waits for every accepted job to finish
+   * If the waiting thread is interrupted, jobs that have not started are cancelled, close waits only for the running
+   * ones, and the interrupt status is restored before returning*/
+   @Override
+   public void close(){
+      shutdown();
+      boolean interrupted = false;
+      while(!executor.isTerminated()){
+         try{
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+         }
+         catch(InterruptedException e){
+            if(!interrupted)
+               shutdownNow();
+            interrupted = true;
+         }
+      }
+      if(interrupted)
+         Thread.currentThread().interrupt();
+   }
+
+   //True when jobs run on virtual threads, false when on the platform thread pool
+   boolean usesVirtualThreads(){
+      return virtualThreads;
+   }
+
+   //Most jobs accepted and not yet finished at any time
+   int getCapacity(){
+      return capacity;
+   }
+
+   //Jobs accepted but not yet picked up by a thread
+   int getQueueDepth(){
+      return queued.get();
+   }
+
+   //Highest queue depth seen since the metrics were last reset
+   int getPeakQueueDepth(){
+      return peakQueued.get();
+   }
+
+   //Jobs running right now
+   int getRunningCount(){
+      return running.get();
+   }
+
+   long getSubmittedCount(){
+      return submitted.sum();
+   }
+
+   //trySubmit calls that gave up because the executor stayed full
+   long getRejectedCount(){
+      return rejected.sum();
+   }
+
+   long getCompletedCount(){
+      return completed.sum();
+   }
+
+   long getFailedCount(){
+      return failed.sum();
+   }
+
+   long getCancelledCount(){
+      return cancelled.sum();
+   }
+
+   //Jobs whose deadline passed before they finished
+   long getExpiredCount(){
+      return expired.sum();
+   }
+
+   //Jobs completed per second since the metrics were last reset
+   double getThroughput(){
+      double seconds = (System.nanoTime() - metricsSinceNanos) / 1e9;
+      return seconds <= 0 ? 0 : completed.sum() / seconds;
+   }
+
+   //Time accepted jobs spent waiting for a thread, in nanoseconds
+   LatencyHistogram getQueueWaitLatency(){
+      return queueWait;
+   }
+
+   //Time jobs spent subtracting, in nanoseconds
+   LatencyHistogram getRunLatency(){
+      return runTime;
+   }
+
+   //Clears the counters, peak queue depth and latencies, and restarts the throughput clock
+   void resetMetrics(){
+      peakQueued.set(queued.get());
+      submitted.reset();
+      rejected.reset();
+      completed.reset();
+      failed.reset();
+      cancelled.reset();
+      expired.reset();
+      queueWait.reset();
+      runTime.reset();
+      metricsSinceNanos = System.nanoTime();
+   }
+}
@@ -0,0 +1,52 @@
+/***************************************************************************
+ * COPYRIGHT (C) 2018, Munish Bhatia.
+ * All rights reserved. This material contains unpublished, copyrighted
+ * work including confidential and proprietary information.
+ ***************************************************************************/
+
+package intervaltree;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+* Engines available for subtracting one list of time intervals from another
+* */
+enum SubtractionEngine {
+   //Loads subtractFrom into a BalancedTimeIntervalTree and applies the operands one at a time
+   INTERVAL_TREE,
+   //Sorts both lists once and produces the residuals in a single linear sweep
+   SORT_AND_SWEEP,
+   //Splits the day into time-of-day ranges and sweeps each range on a ForkJoinPool
+   PARALLEL_SWEEP,
+   //Folds the operands into a 1440 bit bitmap of the day; needs interval bounds on whole minutes
+   BITMAP;
+
+   /*Subtracts 'subtractThese' from 'subtractFrom' with this engine. Every engine produces the residual intervals of
+   * SORT_AND_SWEEP, in start time order and never null; BITMAP needs interval bounds on whole minutes*/
+   List<TimeInterval> subtract(List<TimeInterval> subtractFrom, List<TimeInterval> subtractThese){
+      switch(this){
+         case SORT_AND_SWEEP:
+            return SortAndSweepSubtractor.subtract(subtractFrom, subtractThese);
+         case PARALLEL_SWEEP:
+            return ParallelSweepSubtractor.subtract(subtractFrom, subtractThese);
+         case BITMAP:
+            return MinuteBitmap.subtract(subtractFrom, subtractThese);
+         default:
+            return subtractWithIntervalTree(subtractFrom, subtractThese);
+      }
+   }
+
+   private static List<TimeInterval> subtractWithIntervalTree(List<TimeInterval> subtractFrom, List<TimeInterval> subtractThese){
+      //Bulk load intervals in List 1 (subtractFrom) into a balanced interval tree
+      BalancedTimeIntervalTree intervalTree = new BalancedTimeIntervalTree(subtractFrom);
+
+      //Subtract intervals in List 2 (subtractThese) from List 1 (subtractFrom) intervals in the interval tree
+      for(TimeInterval operand:subtractThese)
+         intervalTree.subtract(operand);
+
+      //The tree reports no intervals as null
+      List<TimeInterval> residuals = intervalTree.getTreeIntervals();
+      return residuals != null ? residuals : new ArrayList<>();
+   }
+}
@@ -0,0 +1,127 @@
+/***************************************************************************
+ * COPYRIGHT (C) 2018, Munish Bhatia.
+ * All rights reserved. This material contains unpublished, copyrighted
+ * work including confidential and proprietary information.
+ ***************************************************************************/
+
+package intervaltree;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+* This class represents a Time Interval Instance
+* */
+class TimeInterval implements Comparable{
+   LocalTime start, end;
+
+   //Constructor
+   TimeInterval(LocalTime start, LocalTime end) {
+      if(start.isAfter(end))
+         throw new IllegalArgumentException("Start Time Cannot be After End Time In an Interval.");
+      this.start = start;
+      this.end = end;
+   }
+
+   //Constructor
+   TimeInterval(Integer startHour, Integer startMinutes, Integer endHour, Integer endMinutes){
+      this.start = LocalTime.of(startHour, startMinutes);
+      this.end = LocalTime.of(endHour, endMinutes);
+      if(start.isAfter(end))
+         throw new IllegalArgumentException("Start Time Cannot be After End Time In an Interval.");
+   }
+
+   //Creates a time interval from nanos-of-day values, the representation used by PrimitiveTimeIntervalTree
+   static TimeInterval ofNanosOfDay(long startNanos, long endNanos){
+      return new TimeInterval(LocalTime.ofNanoOfDay(startNanos), LocalTime.ofNanoOfDay(endNanos));
+   }
+
+   //Start time of this interval as nanos-of-day
+   long startNanos(){
+      return start.toNanoOfDay();
+   }
+
+   //End time of this interval as nanos-of-day
+   long endNanos(){
+      return end.toNanoOfDay();
+   }
+
+   /*
+   * Subtracts One Interval From Another
+   * E.g. (9:00-9:30) - (9:00-9:15) = (9:15-9:30)
+   * (9:00-10:00) - (8:30-10:15) = ()
+   * (9:00-9:30) - (10:00-11:00) = (9:00-9:30)
+   * */
+   List<TimeInterval> subtractInterval(TimeInterval op){
+      List<TimeInterval> result = new ArrayList<>(2);
+      subtractInterval(op, (start, end) -> result.add(start == this.start && end == this.end ? this : new TimeInterval(start, end)));
+      return result;
+   }
+
+   /*Subtracts 'op' from this interval, passing the non empty fragments left over to 'sink' in start time order,
+   * and returns how many there were: 0 when 'op' covers this interval, 1 or 2 otherwise. Nothing is allocated here.
+   * An interval 'op' does not overlap comes through whole; a zero length 'op' strictly inside splits it in two*/
+   int subtractInterval(TimeInterval op, IntervalFragmentSink sink){
+      if(!doOverlap(this, op)){
+         sink.accept(this.start, this.end);
+         return 1;
+      }
+      int fragments = 0;
+      if(this.start.isBefore(op.start)){
+         sink.accept(this.start, op.start);
+         fragments++;
+      }
+      if(op.end.isBefore(this.end)){
+         sink.accept(op.end, this.end);
+         fragments++;
+      }
+      return fragments;
+   }
+
+   //Checks if 'this' time interval begins sooner than (or before) time interval op
+   private boolean beginsSoonerThan(TimeInterval op) {
+      return (op == null || this.start.isBefore(op.start));
+   }
+
+   //Returns max of time intervals 'i' and 'j'
+   public static LocalTime max(LocalTime t1, LocalTime t2){
+      return (t1.isAfter(t2)?t1:t2);
+   }
+
+   //Checks if intervals 'i' and 'j' overlap
+   public static boolean doOverlap(TimeInterval i, TimeInterval j){
+      return (i != null && j != null && i.start.isBefore(j.end) && i.end.isAfter(j.start));
+   }
+
+   @Override
+   public int compareTo(Object o) {
+      if(null == o || (!(o instanceof TimeInterval)))
+         return -1;
+      TimeInterval op = (TimeInterval)o;
+      if(this.beginsSoonerThan(op))
+         return -1;
+      else if(op.beginsSoonerThan(this))
+         return +1;
+      else
+         return 0;
+   }
+
+   @Override
+   public String toString() {
+      return "(" + start + "-" + end + ")";
+   }
+
+   @Override
+   public boolean equals(Object obj) {
+      if(!(obj instanceof  TimeInterval))
+         return false;
+      TimeInterval o = (TimeInterval)obj;
+      return (this.end.equals(o.end) && this.start.equals(o.start));
+   }
+
+   @Override
+   public int hashCode() {
+      return 31 * start.hashCode() + end.hashCode();
+   }
+}
@@ -0,0 +1,209 @@
+/***************************************************************************
+ * COPYRIGHT (C) 2018, Munish Bhatia.
+ * All rights reserved. This material contains unpublished, copyrighted
+ * work including confidential and proprietary information.
+ ***************************************************************************/
+package intervaltree;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/*
+* This class collects operation counts, latencies, rotations and overlap query efficiency for one BalancedTimeIntervalTree
+* Metrics start disabled and can be switched on and off at runtime, locally or over JMX.
+* While disabled the tree's hot paths only read the 'enabled' flag
+* */
+class TimeIntervalTreeMetrics implements TimeIntervalTreeMetricsMBean {
+   volatile boolean enabled = false;
+
+   final LongAdder rotations = new LongAdder();
+   final LongAdder nodesVisited = new LongAdder();
+   final LongAdder queryResults = new LongAdder();
+   final LatencyHistogram insertLatency = new LatencyHistogram();
+   final LatencyHistogram deleteLatency = new LatencyHistogram();
+   final LatencyHistogram queryLatency = new LatencyHistogram();
+   final LatencyHistogram subtractLatency = new LatencyHistogram();
+
+   private final BalancedTimeIntervalTree tree;
+   private ObjectName registeredName = null;
+
+   //Constructor
+   TimeIntervalTreeMetrics(BalancedTimeIntervalTree tree) {
+      this.tree = tree;
+   }
+
+   //Records one overlap query: its latency, the nodes it examined and the intervals it returned
+   void recordQuery(long nanos, int examined, int results){
+      queryLatency.record(nanos);
+      nodesVisited.add(examined);
+      queryResults.add(results);
+   }
+
+   /*Registers these metrics with the platform MBean server as intervaltree:type=BalancedTimeIntervalTree,name='name'
+   * Size and height are read from the tree without synchronization, so they may lag a concurrent writer*/
+   synchronized void registerMBean(String name){
+      if(registeredName != null)
+         throw new IllegalStateException("Metrics Are Already Registered As " + registeredName);
+      try{
+         ObjectName objectName = new ObjectName("intervaltree:type=BalancedTimeIntervalTree,name=" + ObjectName.quote(name));
+         ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+         registeredName = objectName;
+      }
+      catch(JMException e){
+         throw new IllegalStateException("Could Not Register Interval Tree Metrics With JMX.", e);
+      }
+   }
+
+   //Removes these metrics from the platform MBean server, if registered
+   synchronized void unregisterMBean(){
+      if(registeredName == null)
+         return;
+      try{
+         MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+         if(server.isRegistered(registeredName))
+            server.unregisterMBean(registeredName);
+      }
+      catch(JMException e){
+         throw new IllegalStateException("Could Not Unregister Interval Tree Metrics From JMX.", e);
+      }
+      finally{
+         registeredName = null;
+      }
+   }
+
+   @Override
+   public boolean isEnabled(){
+      return enabled;
+   }
+
+   @Override
+   public void setEnabled(boolean enabled){
+      this.enabled = enabled;
+   }
+
+   @Override
+   public void reset(){
+      rotations.reset();
+      nodesVisited.reset();
+      queryResults.reset();
+      insertLatency.reset();
+      deleteLatency.reset();
+      queryLatency.reset();
+      subtractLatency.reset();
+   }
+
+   @Override
+   public int getSize(){
+      return tree.size();
+   }
+
+   @Override
+   public int getHeight(){
+      return tree.height();
+   }
+
+   @Override
+   public long getRotationCount(){
+      return rotations.sum();
+   }
+
+   @Override
+   public long getNodesVisited(){
+      return nodesVisited.sum();
+   }
+
+   @Override
+   public long getQueryResults(){
+      return queryResults.sum();
+   }
+
+   @Override
+   public double getNodesVisitedPerResult(){
+      long results = queryResults.sum();
+      return results == 0 ? 0 : (double) nodesVisited.sum() / results;
+   }
+
+   @Override
+   public long getInsertCount(){
+      return insertLatency.count();
+   }
+
+   @Override
+   public double getInsertLatencyMeanNanos(){
+      return insertLatency.meanNanos();
+   }
+
+   @Override
+   public long getInsertLatencyP50Nanos(){
+      return insertLatency.percentileNanos(50);
+   }
+
+   @Override
+   public long getInsertLatencyP99Nanos(){
+      return insertLatency.percentileNanos(99);
+   }
+
+   @Override
+   public long getDeleteCount(){
+      return deleteLatency.count();
+   }
+
+   @Override
+   public double getDeleteLatencyMeanNanos(){
+      return deleteLatency.meanNanos();
+   }
+
+   @Override
+   public long getDeleteLatencyP50Nanos(){
+      return deleteLatency.percentileNanos(50);
+   }
+
+   @Override
+   public long getDeleteLatencyP99Nanos(){
+      return deleteLatency.percentileNanos(99);
+   }
+
+   @Override
+   public long getQueryCount(){
+      return queryLatency.count();
+   }
+
+   @Override
+   public double getQueryLatencyMeanNanos(){
+      return queryLatency.meanNanos();
+   }
+
+   @Override
+   public long getQueryLatencyP50Nanos(){
+      return queryLatency.percentileNanos(50);
+   }
+
+   @Override
+   public long getQueryLatencyP99Nanos(){
+      return queryLatency.percentileNanos(99);
+   }
+
+   @Override
+   public long getSubtractCount(){
+      return subtractLatency.count();
+   }
+
+   @Override
+   public double getSubtractLatencyMeanNanos(){
+      return subtractLatency.meanNanos();
+   }
+
+   @Override
+   public long getSubtractLatencyP50Nanos(){
+      return subtractLatency.percentileNanos(50);
+   }
+
+   @Override
+   public long getSubtractLatencyP99Nanos(){
+      return subtractLatency.percentileNanos(99);
+   }
+}
@@ -0,0 +1,64 @@
+/***************************************************************************
+ * COPYRIGHT (C) 2018, Munish Bhatia.
+ * All rights reserved. This material contains unpublished, copyrighted
+ * work including confidential and proprietary information.
+ ***************************************************************************/
+package intervaltree;
+
+/*
+* JMX view of the metrics of a BalancedTimeIntervalTree
+* Latencies are in nanoseconds; percentiles are the upper bound of a power-of-two bucket
+* */
+public interface TimeIntervalTreeMetricsMBean {
+   boolean isEnabled();
+
+   void setEnabled(boolean enabled);
+
+   //Clears every counter and histogram; size and height are read from the tree and are not affected
+   void reset();
+
+   int getSize();
+
+   int getHeight();
+
+   long getRotationCount();
+
+   long getNodesVisited();
+
+   long getQueryResults();
+
+   //Nodes examined by overlap queries per overlapping interval returned; 1.0 means no wasted visits
+   double getNodesVisitedPerResult();
+
+   long getInsertCount();
+
+   double getInsertLatencyMeanNanos();
+
+   long getInsertLatencyP50Nanos();
+
+   long getInsertLatencyP99Nanos();
+
+   long getDeleteCount();
+
+   double getDeleteLatencyMeanNanos();
+
+   long getDeleteLatencyP50Nanos();
+
+   long getDeleteLatencyP99Nanos();
+
+   long getQueryCount();
+
+   double getQueryLatencyMeanNanos();
+
+   long getQueryLatencyP50Nanos();
+
+   long getQueryLatencyP99Nanos();
+
+   long getSubtractCount();
+
+   double getSubtractLatencyMeanNanos();
+
+   long getSubtractLatencyP50Nanos();
+
+   long getSubtractLatencyP99Nanos();
+}
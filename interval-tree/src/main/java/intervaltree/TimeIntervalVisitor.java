@@ -0,0 +1,16 @@
+/***************************************************************************
+ * COPYRIGHT (C) 2018, Munish Bhatia.
+ * All rights reserved. This material contains unpublished, copyrighted
+ * work including confidential and proprietary information.
+ ***************************************************************************/
+
+package intervaltree;
+
+/*
+* Callback for overlap queries on the Balanced Interval Tree
+* */
+@FunctionalInterface
+interface TimeIntervalVisitor {
+   //Visits a node overlapping the query; returning false stops the query
+   boolean visit(BalancedTimeIntervalTreeNode node);
+}
@@ -0,0 +1,90 @@
+/***************************************************************************
+ * COPYRIGHT (C) 2018, Munish Bhatia.
+ * All rights reserved. This material contains unpublished, copyrighted
+ * work including confidential and proprietary information.
+ ***************************************************************************/
+
+package intervaltree;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/*
+* Checks that the subtraction hot path and pooled tree updates allocate nothing once warmed up
+* Allocation is read from the current thread's allocated byte counter; the operations are repeated OPERATIONS times,
+* so any allocation per operation shows up as at least OPERATIONS bytes while the counter's own overhead does not
+* */
+class AllocationTest {
+   private static final int WARMUP = 200_000;
+   private static final int OPERATIONS = 100_000;
+
+   private com.sun.management.ThreadMXBean threads;
+   private long fragmentCount;
+
+   @BeforeEach
+   void setUp(){
+      assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+      threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+      assumeTrue(threads.isThreadAllocatedMemorySupported());
+      threads.setThreadAllocatedMemoryEnabled(true);
+   }
+
+   private long allocatedBytes(){
+      return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+   }
+
+   @Test
+   void subtractIntervalIntoSinkAllocatesNothing(){
+      TimeInterval interval = new TimeInterval(9, 0, 10, 0);
+      TimeInterval[] operands = {new TimeInterval(9, 15, 9, 45), new TimeInterval(8, 0, 9, 30),
+            new TimeInterval(9, 30, 11, 0), new TimeInterval(8, 0, 11, 0), new TimeInterval(11, 0, 12, 0),
+            new TimeInterval(9, 30, 9, 30)};
+      IntervalFragmentSink sink = (start, end) -> fragmentCount++;
+
+      for(int op = 0; op < WARMUP; op++)
+         interval.subtractInterval(operands[op % operands.length], sink);
+      long before = allocatedBytes();
+      for(int op = 0; op < OPERATIONS; op++)
+         interval.subtractInterval(operands[op % operands.length], sink);
+      long allocated = allocatedBytes() - before;
+
+      assertEquals(0, allocated / OPERATIONS, "Bytes Allocated Per subtractInterval, " + allocated + " In Total");
+   }
+
+   @Test
+   void pooledInsertAndDeleteAllocateNothing(){
+      List<TimeInterval> intervals = new ArrayList<>();
+      for(int m = 0; m < 1000; m++)
+         intervals.add(new TimeInterval(LocalTime.of(m / 60, m % 60), LocalTime.of(m / 60 + 1, m % 60)));
+      TimeInterval[] churn = new TimeInterval[64];
+      for(int c = 0; c < churn.length; c++)
+         churn[c] = new TimeInterval(LocalTime.of(0, 0).plusMinutes(17 * c), LocalTime.of(0, 30).plusMinutes(17 * c));
+      BalancedTimeIntervalTree tree = new BalancedTimeIntervalTree(intervals);
+      tree.setNodePoolCapacity(churn.length);
+
+      for(int op = 0; op < WARMUP; op++)
+         insertThenDelete(tree, churn, op);
+      long before = allocatedBytes();
+      for(int op = 0; op < OPERATIONS; op++)
+         insertThenDelete(tree, churn, op);
+      long allocated = allocatedBytes() - before;
+
+      assertEquals(intervals.size(), tree.size());
+      assertEquals(0, allocated / OPERATIONS, "Bytes Allocated Per Pooled Insert And Delete, " + allocated + " In Total");
+   }
+
+   //Inserts the next batch of churn intervals, then deletes them again, so the pool serves every insert
+   private static void insertThenDelete(BalancedTimeIntervalTree tree, TimeInterval[] churn, int op){
+      TimeInterval interval = churn[op % churn.length];
+      tree.insertInterval(interval);
+      tree.deleteInterval(interval);
+   }
+}
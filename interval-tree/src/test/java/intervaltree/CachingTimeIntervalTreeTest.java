@@ -0,0 +1,175 @@
+/***************************************************************************
+ * COPYRIGHT (C) 2018, Munish Bhatia.
+ * All rights reserved. This material contains unpublished, copyrighted
+ * work including confidential and proprietary information.
+ ***************************************************************************/
+
+package intervaltree;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/*
+* Checks that an update drops exactly the cached queries it overlaps, that an epoch bump retires everything cached,
+* and that across random updates and queries the cache never returns a stale result
+* */
+class CachingTimeIntervalTreeTest {
+   private static final TimeInterval MORNING = new TimeInterval(8, 0, 12, 0);
+   private static final TimeInterval AFTERNOON = new TimeInterval(13, 0, 17, 0);
+
+   @Test
+   void insertRecomputesOnlyOverlappingQueries(){
+      CachingTimeIntervalTree cache = new CachingTimeIntervalTree(100);
+      cache.insertInterval(new TimeInterval(9, 0, 10, 0));
+      cache.insertInterval(new TimeInterval(14, 0, 15, 0));
+      List<TimeInterval> morning = cache.getOverlappingIntervals(MORNING);
+      List<TimeInterval> afternoon = cache.getOverlappingIntervals(AFTERNOON);
+
+      cache.insertInterval(new TimeInterval(11, 0, 11, 30));
+
+      List<TimeInterval> freshMorning = cache.getOverlappingIntervals(MORNING);
+      assertNotSame(morning, freshMorning);
+      assertEquals(sorted(List.of(new TimeInterval(9, 0, 10, 0), new TimeInterval(11, 0, 11, 30))), sorted(freshMorning));
+      assertSame(afternoon, cache.getOverlappingIntervals(AFTERNOON));
+      assertEquals(1, cache.getHits());
+      assertEquals(3, cache.getMisses());
+      assertEquals(1, cache.getInvalidations());
+   }
+
+   @Test
+   void deleteRecomputesOnlyOverlappingQueries(){
+      CachingTimeIntervalTree cache = new CachingTimeIntervalTree(100);
+      cache.insertInterval(new TimeInterval(9, 0, 10, 0));
+      cache.insertInterval(new TimeInterval(14, 0, 15, 0));
+      List<TimeInterval> morning = cache.getOverlappingIntervals(MORNING);
+      List<TimeInterval> afternoon = cache.getOverlappingIntervals(AFTERNOON);
+
+      cache.deleteInterval(new TimeInterval(14, 0, 15, 0));
+
+      assertSame(morning, cache.getOverlappingIntervals(MORNING));
+      assertEquals(List.of(), cache.getOverlappingIntervals(AFTERNOON));
+      assertNotSame(afternoon, cache.getOverlappingIntervals(AFTERNOON));
+   }
+
+   @Test
+   void touchingUpdateKeepsQueryCached(){
+      CachingTimeIntervalTree cache = new CachingTimeIntervalTree(100);
+      List<TimeInterval> morning = cache.getOverlappingIntervals(MORNING);
+
+      //Shares only the end point 12:00, which is not an overlap
+      cache.insertInterval(new TimeInterval(12, 0, 13, 0));
+
+      assertSame(morning, cache.getOverlappingIntervals(MORNING));
+   }
+
+   @Test
+   void epochBumpRetiresEveryCachedQuery(){
+      CachingTimeIntervalTree cache = new CachingTimeIntervalTree(100);
+      cache.insertInterval(new TimeInterval(9, 0, 10, 0));
+      List<TimeInterval> morning = cache.getOverlappingIntervals(MORNING);
+      List<TimeInterval> afternoon = cache.getOverlappingIntervals(AFTERNOON);
+
+      cache.invalidateAll();
+
+      assertNotSame(morning, cache.getOverlappingIntervals(MORNING));
+      assertNotSame(afternoon, cache.getOverlappingIntervals(AFTERNOON));
+      assertEquals(0, cache.getHits());
+      assertEquals(4, cache.getMisses());
+   }
+
+   @Test
+   void bulkUpdatesBumpTheEpoch(){
+      CachingTimeIntervalTree cache = new CachingTimeIntervalTree(100);
+      cache.insertInterval(new TimeInterval(9, 0, 10, 0));
+      cache.getOverlappingIntervals(AFTERNOON);
+
+      //Neither update overlaps the afternoon, but both retire it anyway
+      cache.insertIntervals(new TimeInterval(8, 0, 8, 30));
+      assertEquals(List.of(), cache.getOverlappingIntervals(AFTERNOON));
+      cache.subtract(new TimeInterval(9, 15, 9, 30));
+      assertEquals(List.of(), cache.getOverlappingIntervals(AFTERNOON));
+      assertEquals(sorted(List.of(new TimeInterval(8, 0, 8, 30), new TimeInterval(9, 0, 9, 15), new TimeInterval(9, 30, 10, 0))),
+            sorted(cache.getOverlappingIntervals(MORNING)));
+      assertEquals(0, cache.getHits());
+   }
+
+   @Test
+   void withoutRangeInvalidationEveryUpdateBumpsTheEpoch(){
+      CachingTimeIntervalTree cache = new CachingTimeIntervalTree(100);
+      cache.setRangeInvalidation(false);
+      List<TimeInterval> afternoon = cache.getOverlappingIntervals(AFTERNOON);
+
+      cache.insertInterval(new TimeInterval(9, 0, 10, 0));
+
+      assertNotSame(afternoon, cache.getOverlappingIntervals(AFTERNOON));
+      assertEquals(0, cache.getHits());
+   }
+
+   //Random updates and queries, with a small capacity so eviction runs too; every answer must match the current intervals
+   @Test
+   void neverReturnsStaleResults(){
+      for(long seed = 1; seed <= 4; seed++){
+         Random random = new Random(seed);
+         CachingTimeIntervalTree cache = new CachingTimeIntervalTree(16);
+         cache.setRangeInvalidation(seed % 2 == 1);
+         List<TimeInterval> intervals = new ArrayList<>();
+         //A small pool of queries, so many of them repeat and are answered from the cache
+         List<TimeInterval> queries = new ArrayList<>();
+         for(int i = 0; i < 40; i++)
+            queries.add(interval(random));
+
+         for(int step = 0; step < 3000; step++){
+            int choice = random.nextInt(20);
+            if(choice < 4){
+               TimeInterval interval = interval(random);
+               cache.insertInterval(interval);
+               intervals.add(interval);
+            }
+            else if(choice < 7 && !intervals.isEmpty()){
+               TimeInterval interval = intervals.remove(random.nextInt(intervals.size()));
+               cache.deleteInterval(interval);
+            }
+            else if(choice == 7){
+               TimeInterval op = interval(random);
+               cache.subtract(op);
+               intervals = SortAndSweepSubtractor.subtract(intervals, List.of(op));
+            }
+            else {
+               TimeInterval query = queries.get(random.nextInt(queries.size()));
+               assertEquals(bruteOverlapping(intervals, query), sorted(cache.getOverlappingIntervals(query)),
+                     "seed " + seed + " step " + step + " query " + query);
+            }
+         }
+         //Otherwise the cache was never exercised
+         assertTrue(cache.getHits() > 0, "seed " + seed);
+      }
+   }
+
+   private static TimeInterval interval(Random random){
+      LocalTime start = LocalTime.of(8, 0).plusMinutes(random.nextInt(600));
+      return new TimeInterval(start, start.plusMinutes(random.nextInt(5) == 0 ? 0 : 1 + random.nextInt(120)));
+   }
+
+   private static List<TimeInterval> bruteOverlapping(List<TimeInterval> intervals, TimeInterval key){
+      List<TimeInterval> overlapping = new ArrayList<>();
+      for(TimeInterval interval : intervals)
+         if(interval.start.isBefore(key.end) && interval.end.isAfter(key.start))
+            overlapping.add(interval);
+      return sorted(overlapping);
+   }
+
+   private static List<TimeInterval> sorted(List<TimeInterval> intervals){
+      List<TimeInterval> copy = new ArrayList<>(intervals);
+      copy.sort(SortAndSweepSubtractor.BY_START_THEN_END);
+      return copy;
+   }
+}
@@ -0,0 +1,80 @@
+/***************************************************************************
+ * COPYRIGHT (C) 2018, Munish Bhatia.
+ * All rights reserved. This material contains unpublished, copyrighted
+ * work including confidential and proprietary information.
+ ***************************************************************************/
+
+package intervaltree;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/*
+* Replays random operand events against an IncrementalResidualView and checks after each one that the view equals
+* SortAndSweepSubtractor over the active operands, and that a copy rebuilt only from the listener deltas equals the view
+* */
+class IncrementalResidualViewTest {
+   private static final int EVENTS = 2000;
+
+   @Test
+   void matchesSortAndSweepAndListenerDeltas(){
+      for(long seed = 1; seed <= 6; seed++){
+         Random random = new Random(seed);
+         //Repeats some minuends, so residuals of duplicate copies are exercised too
+         List<TimeInterval> subtractFrom = new ArrayList<>();
+         for(int i = 0; i < 60; i++)
+            subtractFrom.add(i > 0 && random.nextInt(10) == 0 ? subtractFrom.get(random.nextInt(i)) : interval(random));
+
+         IncrementalResidualView view = new IncrementalResidualView(subtractFrom);
+         List<TimeInterval> replayed = new ArrayList<>(view.getResiduals());
+         view.addListener((removed, added) -> {
+            assertFalse(removed.isEmpty() && added.isEmpty(), "empty delta");
+            for(TimeInterval residual:removed)
+               assertTrue(replayed.remove(residual), "removed residual was not in the view: " + residual);
+            replayed.addAll(added);
+         });
+
+         List<TimeInterval> operands = new ArrayList<>();
+         for(int event = 0; event < EVENTS; event++){
+            if(operands.isEmpty() || random.nextInt(5) < 3){
+               //Sometimes re-adds an active operand, so duplicate operands are active at once
+               TimeInterval operand = !operands.isEmpty() && random.nextInt(10) == 0 ? operands.get(random.nextInt(operands.size())) : interval(random);
+               view.addOperand(operand);
+               operands.add(operand);
+            }
+            else if(random.nextInt(10) == 0){
+               //Never active, so removing it changes nothing
+               assertFalse(view.removeOperand(new TimeInterval(LocalTime.of(0, 0), LocalTime.of(0, 1 + random.nextInt(59)))));
+            }
+            else {
+               TimeInterval operand = operands.remove(random.nextInt(operands.size()));
+               assertTrue(view.removeOperand(operand));
+            }
+
+            List<TimeInterval> expected = SortAndSweepSubtractor.subtract(subtractFrom, operands);
+            String context = "seed " + seed + " event " + event;
+            assertEquals(expected, view.getResiduals(), context);
+            assertEquals(expected.size(), view.residualCount(), context);
+            assertEquals(operands.size(), view.operandCount(), context);
+            replayed.sort(SortAndSweepSubtractor.BY_START_THEN_END);
+            assertEquals(expected, replayed, context);
+         }
+      }
+   }
+
+   //Mostly short intervals, some zero length and some long ones spanning several minuends
+   private static TimeInterval interval(Random random){
+      LocalTime start = LocalTime.of(8, 0).plusMinutes(random.nextInt(600));
+      int shape = random.nextInt(20);
+      int minutes = shape < 2 ? 0 : shape < 4 ? 120 + random.nextInt(180) : 1 + random.nextInt(60);
+      return new TimeInterval(start, start.plusMinutes(minutes));
+   }
+}
@@ -0,0 +1,146 @@
+/***************************************************************************
+ * COPYRIGHT (C) 2018, Munish Bhatia.
+ * All rights reserved. This material contains unpublished, copyrighted
+ * work including confidential and proprietary information.
+ ***************************************************************************/
+
+package intervaltree;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/*
+* Checks that snapshots round trip and that corrupt ones are rejected when opened
+* */
+class MappedTimeIntervalTreeTest {
+   @TempDir
+   Path directory;
+
+   private Path snapshot;
+   private BalancedTimeIntervalTree tree;
+
+   @BeforeEach
+   void writeSnapshot() throws IOException {
+      List<TimeInterval> intervals = new ArrayList<>();
+      for(int m = 0; m < 100; m++)
+         intervals.add(new TimeInterval(m / 60, m % 60, m / 60 + 2, m % 60));
+      tree = new BalancedTimeIntervalTree(intervals);
+      snapshot = directory.resolve("tree.snapshot");
+      MappedTimeIntervalTree.write(tree, snapshot);
+   }
+
+   @Test
+   void snapshotRoundTrips() throws IOException {
+      try(MappedTimeIntervalTree mapped = MappedTimeIntervalTree.open(snapshot)){
+         assertEquals(tree.getTreeIntervals(), mapped.getTreeIntervals());
+         assertEquals(tree.height(), mapped.height());
+         TimeInterval key = new TimeInterval(1, 0, 1, 30);
+         assertEquals(tree.getOverlappingIntervals(key).size(), mapped.getOverlappingIntervals(key).size());
+      }
+   }
+
+   @Test
+   void truncatedSnapshotIsRejected() throws IOException {
+      try(FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.WRITE)){
+         channel.truncate(channel.size() - 1);
+      }
+      assertCorrupt();
+   }
+
+   @Test
+   void rootOutOfRangeIsRejected() throws IOException {
+      putInt(16, 100);
+      assertCorrupt();
+   }
+
+   @Test
+   void headerHeightMismatchIsRejected() throws IOException {
+      putInt(20, 64);
+      assertCorrupt();
+   }
+
+   @Test
+   void childOutOfRangeIsRejected() throws IOException {
+      putInt(record(0) + 28, 1000);
+      assertCorrupt();
+   }
+
+   @Test
+   void childLinkingBackToItsParentIsRejected() throws IOException {
+      putInt(record(1) + 32, 0);
+      assertCorrupt();
+   }
+
+   @Test
+   void inconsistentHeightIsRejected() throws IOException {
+      putInt(record(99) + 24, 5);
+      assertCorrupt();
+   }
+
+   @Test
+   void invalidBoundsAreRejected() throws IOException {
+      putLong(record(50), Long.MAX_VALUE);
+      assertCorrupt();
+   }
+
+   @Test
+   void shortFileIsRejected() throws IOException {
+      try(FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.WRITE)){
+         channel.truncate(MappedTimeIntervalTree.HEADER_LENGTH - 1);
+      }
+      assertRejected("Not An Interval Tree Snapshot");
+   }
+
+   @Test
+   void badMagicNumberIsRejected() throws IOException {
+      putInt(0, 0);
+      assertRejected("Not An Interval Tree Snapshot");
+   }
+
+   @Test
+   void unsupportedVersionIsRejected() throws IOException {
+      putInt(4, MappedTimeIntervalTree.VERSION + 1);
+      assertRejected("Unsupported Interval Tree Snapshot Version");
+   }
+
+   private static long record(int node){
+      return MappedTimeIntervalTree.HEADER_LENGTH + (long) node * MappedTimeIntervalTree.RECORD_LENGTH;
+   }
+
+   private void putInt(long position, int value) throws IOException {
+      write(position, ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(0, value));
+   }
+
+   private void putLong(long position, long value) throws IOException {
+      write(position, ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN).putLong(0, value));
+   }
+
+   private void write(long position, ByteBuffer bytes) throws IOException {
+      try(FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.WRITE)){
+         channel.write(bytes, position);
+      }
+   }
+
+   private void assertCorrupt(){
+      assertRejected("Corrupt Snapshot");
+   }
+
+   private void assertRejected(String messagePrefix){
+      IOException e = assertThrows(IOException.class, () -> MappedTimeIntervalTree.open(snapshot).close());
+      assertTrue(e.getMessage().startsWith(messagePrefix), e.getMessage());
+   }
+}
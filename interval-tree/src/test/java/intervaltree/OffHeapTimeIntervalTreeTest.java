@@ -0,0 +1,127 @@
+/***************************************************************************
+ * COPYRIGHT (C) 2018, Munish Bhatia.
+ * All rights reserved. This material contains unpublished, copyrighted
+ * work including confidential and proprietary information.
+ ***************************************************************************/
+
+package intervaltree;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/*
+* Checks the off-heap tree, with slabs of only 16 nodes so it spans many of them, against BalancedTimeIntervalTree,
+* and that deleted nodes are reused before new slabs are allocated
+* */
+class OffHeapTimeIntervalTreeTest {
+   private static final int SLAB_SHIFT = 4;
+   private static final long SLAB_BYTES = 40L << SLAB_SHIFT;
+
+   @Test
+   void matchesBalancedTree(){
+      for(long seed = 1; seed <= 4; seed++){
+         Random random = new Random(seed);
+         List<TimeInterval> intervals = new ArrayList<>();
+         BalancedTimeIntervalTree expected = new BalancedTimeIntervalTree();
+         int peakSize = 0;
+         try(OffHeapTimeIntervalTree tree = new OffHeapTimeIntervalTree(SLAB_SHIFT)){
+            for(int step = 0; step < 3000; step++){
+               int choice = random.nextInt(10);
+               if(choice < 5 || intervals.isEmpty()){
+                  //Sometimes repeats an interval, so duplicates are held too
+                  TimeInterval interval = !intervals.isEmpty() && random.nextInt(10) == 0 ? intervals.get(random.nextInt(intervals.size())) : interval(random);
+                  tree.insertInterval(interval);
+                  expected.insertInterval(interval);
+                  intervals.add(interval);
+               }
+               else if(choice < 8){
+                  TimeInterval interval = intervals.remove(random.nextInt(intervals.size()));
+                  tree.deleteInterval(interval);
+                  expected.deleteInterval(interval);
+               }
+               else {
+                  TimeInterval key = interval(random);
+                  assertEquals(sorted(nodeIntervals(expected.getOverlappingIntervals(key))), sorted(tree.getOverlappingIntervals(key)),
+                        "seed " + seed + " step " + step + " key " + key);
+               }
+               assertEquals(intervals.size(), tree.size());
+               peakSize = Math.max(peakSize, intervals.size());
+            }
+            assertEquals(sorted(intervals), sorted(tree.getTreeIntervals()), "seed " + seed);
+            //Freed nodes are reused first, so the slabs only ever had to hold the largest the tree has been
+            assertEquals((peakSize + 15) / 16 * SLAB_BYTES, tree.allocatedBytes(), "seed " + seed);
+         }
+      }
+   }
+
+   @Test
+   void deletedNodesAreReusedBeforeNewSlabs(){
+      try(OffHeapTimeIntervalTree tree = new OffHeapTimeIntervalTree(SLAB_SHIFT)){
+         List<TimeInterval> intervals = new ArrayList<>();
+         for(int m = 0; m < 100; m++)
+            intervals.add(minutes(m, 30));
+         tree.insertIntervals(intervals.toArray(new TimeInterval[0]));
+         //100 nodes need 7 slabs of 16
+         assertEquals(7 * SLAB_BYTES, tree.allocatedBytes());
+
+         for(int m = 0; m < 100; m += 2)
+            tree.deleteInterval(intervals.get(m));
+         for(int m = 0; m < 50; m++)
+            tree.insertInterval(minutes(200 + m, 5));
+         assertEquals(7 * SLAB_BYTES, tree.allocatedBytes());
+         assertEquals(100, tree.size());
+
+         //Only the 13th node past the free list needs a new slab
+         for(int m = 0; m < 13; m++)
+            tree.insertInterval(minutes(300 + m, 5));
+         assertEquals(8 * SLAB_BYTES, tree.allocatedBytes());
+         assertEquals(113, tree.size());
+         assertEquals(minutes(1, 30), tree.getTreeIntervals().get(0));
+      }
+   }
+
+   @Test
+   void useAfterCloseIsRejected(){
+      OffHeapTimeIntervalTree tree = new OffHeapTimeIntervalTree(SLAB_SHIFT);
+      tree.insertInterval(minutes(0, 30));
+      tree.close();
+      //Closing again is harmless
+      tree.close();
+
+      assertEquals(0, tree.allocatedBytes());
+      assertThrows(IllegalStateException.class, () -> tree.insertInterval(minutes(10, 30)));
+      assertThrows(IllegalStateException.class, () -> tree.deleteInterval(minutes(0, 30)));
+      assertThrows(IllegalStateException.class, () -> tree.getOverlappingIntervals(minutes(0, 60)));
+      assertThrows(IllegalStateException.class, tree::getTreeIntervals);
+   }
+
+   //An interval starting 'startMinute' minutes after 08:00
+   private static TimeInterval minutes(int startMinute, int length){
+      LocalTime start = LocalTime.of(8, 0).plusMinutes(startMinute);
+      return new TimeInterval(start, start.plusMinutes(length));
+   }
+
+   private static TimeInterval interval(Random random){
+      return minutes(random.nextInt(600), random.nextInt(5) == 0 ? 0 : 1 + random.nextInt(120));
+   }
+
+   private static List<TimeInterval> nodeIntervals(List<BalancedTimeIntervalTreeNode> nodes){
+      List<TimeInterval> intervals = new ArrayList<>();
+      for(BalancedTimeIntervalTreeNode node : nodes)
+         intervals.add(node.interval);
+      return intervals;
+   }
+
+   private static List<TimeInterval> sorted(List<TimeInterval> intervals){
+      List<TimeInterval> copy = new ArrayList<>(intervals == null ? List.of() : intervals);
+      copy.sort(SortAndSweepSubtractor.BY_START_THEN_END);
+      return copy;
+   }
+}
@@ -0,0 +1,108 @@
+/***************************************************************************
+ * COPYRIGHT (C) 2018, Munish Bhatia.
+ * All rights reserved. This material contains unpublished, copyrighted
+ * work including confidential and proprietary information.
+ ***************************************************************************/
+
+package intervaltree;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/*
+* Checks that the partitioned subtraction produces exactly the residuals of SortAndSweepSubtractor.subtract
+* Most cases pass a sequential threshold of 0 so small inputs still go through clipping at range boundaries and stitching
+* */
+class ParallelSweepSubtractorTest {
+   private static ForkJoinPool pool;
+
+   @BeforeAll
+   static void startPool(){
+      pool = new ForkJoinPool(4);
+   }
+
+   @AfterAll
+   static void stopPool(){
+      pool.shutdown();
+   }
+
+   @ParameterizedTest
+   @ValueSource(ints = {2, 3, 4, 7, 16, 64})
+   void randomCasesMatchSortAndSweep(int maxRanges){
+      Random random = new Random(maxRanges);
+      for(int c = 0; c < 500; c++){
+         List<TimeInterval> subtractFrom = randomIntervals(random, random.nextInt(40), 30);
+         List<TimeInterval> subtractThese = randomIntervals(random, random.nextInt(40), 30);
+         assertMatchesSortAndSweep(subtractFrom, subtractThese, maxRanges);
+      }
+   }
+
+   /*Every end point falls on one of a few instants and each of them also holds a zero length minuend and operand,
+   * so whichever instants become range boundaries have points, touching operands and straddling minuends on them*/
+   @ParameterizedTest
+   @ValueSource(ints = {2, 3, 4, 7, 16})
+   void intervalsOnRangeBoundariesMatchSortAndSweep(int maxRanges){
+      Random random = new Random(100 + maxRanges);
+      for(int c = 0; c < 200; c++){
+         List<TimeInterval> subtractFrom = intervalsOnInstants(random, 30);
+         List<TimeInterval> subtractThese = intervalsOnInstants(random, 30);
+         LocalTime[] rangeStarts = ParallelSweepSubtractor.chooseRangeStarts(subtractFrom, subtractThese, maxRanges);
+         assertTrue(rangeStarts.length > 1, "Input Should Be Split Into Ranges");
+         assertMatchesSortAndSweep(subtractFrom, subtractThese, maxRanges);
+      }
+   }
+
+   @Test
+   void inputAboveSequentialThresholdMatchesSortAndSweep(){
+      Random random = new Random(7);
+      List<TimeInterval> subtractFrom = randomIntervals(random, ParallelSweepSubtractor.SEQUENTIAL_THRESHOLD, 1439);
+      List<TimeInterval> subtractThese = randomIntervals(random, ParallelSweepSubtractor.SEQUENTIAL_THRESHOLD / 2, 1439);
+      for(int maxRanges : new int[]{2, 5, 16, 64})
+         assertEquals(SortAndSweepSubtractor.subtract(subtractFrom, subtractThese),
+               ParallelSweepSubtractor.subtract(subtractFrom, subtractThese, pool, maxRanges), "maxRanges " + maxRanges);
+      assertEquals(SortAndSweepSubtractor.subtract(subtractFrom, subtractThese), ParallelSweepSubtractor.subtract(subtractFrom, subtractThese));
+   }
+
+   private static void assertMatchesSortAndSweep(List<TimeInterval> subtractFrom, List<TimeInterval> subtractThese, int maxRanges){
+      assertEquals(SortAndSweepSubtractor.subtract(subtractFrom, subtractThese),
+            ParallelSweepSubtractor.subtract(subtractFrom, subtractThese, pool, maxRanges, 0),
+            "maxRanges " + maxRanges + ", subtractFrom " + subtractFrom + ", subtractThese " + subtractThese);
+   }
+
+   //Intervals of 0 to 10 minutes starting in the first 'spanMinutes' minutes after 09:00 (or midnight for a whole day)
+   private static List<TimeInterval> randomIntervals(Random random, int count, int spanMinutes){
+      LocalTime origin = spanMinutes >= 1439 ? LocalTime.MIN : LocalTime.of(9, 0);
+      List<TimeInterval> intervals = new ArrayList<>(count);
+      for(int i = 0; i < count; i++){
+         LocalTime start = origin.plusMinutes(random.nextInt(spanMinutes));
+         long minutes = random.nextInt(4) == 0 ? 0 : 1 + random.nextInt(10);
+         LocalTime end = start.plusMinutes(minutes);
+         intervals.add(new TimeInterval(start, end.isBefore(start) ? LocalTime.MAX : end));
+      }
+      return intervals;
+   }
+
+   //Intervals between five instants ten minutes apart, plus a zero length interval at each instant
+   private static List<TimeInterval> intervalsOnInstants(Random random, int count){
+      List<TimeInterval> intervals = new ArrayList<>(count + 5);
+      for(int p = 0; p < 5; p++)
+         intervals.add(new TimeInterval(9, 10 * p, 9, 10 * p));
+      for(int i = 0; i < count; i++){
+         int from = random.nextInt(5), to = from + random.nextInt(5 - from);
+         intervals.add(new TimeInterval(9, 10 * from, 9, 10 * to));
+      }
+      return intervals;
+   }
+}
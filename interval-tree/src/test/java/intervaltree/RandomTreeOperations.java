@@ -0,0 +1,76 @@
+/***************************************************************************
+ * COPYRIGHT (C) 2018, Munish Bhatia.
+ * All rights reserved. This material contains unpublished, copyrighted
+ * work including confidential and proprietary information.
+ ***************************************************************************/
+
+package intervaltree;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/*
+* Drives a BalancedTimeIntervalTree through random inserts, deletes, subtractions and bulk merges, for tests that
+* compare its augmented queries with brute force answers over getTreeIntervals()
+* Intervals are minute aligned working hours with about one in eight of zero length and one in twenty lasting hours,
+* so long intervals cover the gaps of intervals starting after them
+* */
+class RandomTreeOperations {
+   private final Random random;
+   final BalancedTimeIntervalTree tree;
+
+   RandomTreeOperations(long seed, boolean pooled){
+      random = new Random(seed);
+      List<TimeInterval> initial = new ArrayList<>();
+      for(int i = 0; i < 40; i++)
+         initial.add(interval());
+      tree = new BalancedTimeIntervalTree(initial);
+      if(pooled)
+         tree.setNodePoolCapacity(16);
+   }
+
+   //Applies one random update
+   void step(){
+      int choice = random.nextInt(20);
+      if(choice < 9)
+         tree.insertInterval(interval());
+      else if(choice < 15){
+         List<TimeInterval> intervals = intervals();
+         if(!intervals.isEmpty())
+            tree.deleteInterval(intervals.get(random.nextInt(intervals.size())));
+      }
+      else if(choice < 19)
+         tree.subtract(interval());
+      else {
+         List<TimeInterval> batch = new ArrayList<>();
+         for(int i = random.nextInt(60); i > 0; i--)
+            batch.add(interval());
+         tree.mergeIntervals(batch);
+      }
+   }
+
+   //The tree's intervals, empty rather than null
+   List<TimeInterval> intervals(){
+      List<TimeInterval> intervals = tree.getTreeIntervals();
+      return intervals != null ? intervals : new ArrayList<>();
+   }
+
+   //A random instant on the minute between 07:00 and 19:00
+   LocalTime instant(){
+      return LocalTime.of(7, 0).plusMinutes(random.nextInt(12 * 60 + 1));
+   }
+
+   //A random interval, shaped like the tree's contents
+   TimeInterval interval(){
+      LocalTime start = LocalTime.of(8, 0).plusMinutes(random.nextInt(10 * 60));
+      int shape = random.nextInt(40);
+      long minutes = shape < 5 ? 0 : shape < 7 ? 3 * 60 + random.nextInt(2 * 60) : 1 + random.nextInt(45);
+      return new TimeInterval(start, start.plusMinutes(minutes));
+   }
+
+   Random random(){
+      return random;
+   }
+}
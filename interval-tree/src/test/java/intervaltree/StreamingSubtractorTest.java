@@ -0,0 +1,120 @@
+/***************************************************************************
+ * COPYRIGHT (C) 2018, Munish Bhatia.
+ * All rights reserved. This material contains unpublished, copyrighted
+ * work including confidential and proprietary information.
+ ***************************************************************************/
+
+package intervaltree;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+/*
+* Round trips random interval files through ChannelIntervalWriter and MappedIntervalReader, and checks that
+* StreamingSubtractor writes the same residuals, in the same order, as SortAndSweepSubtractor
+* Windows are only a few records wide, so records keep crossing mapping boundaries
+* */
+class StreamingSubtractorTest {
+   //The smallest windows allowed, plus some that do not divide evenly into records
+   private static final long[] WINDOWS = {IntervalFormat.MAX_CSV_RECORD_LENGTH, 41, 57, 100};
+
+   @TempDir
+   Path directory;
+
+   @ParameterizedTest
+   @EnumSource(IntervalFormat.class)
+   void readerReturnsWhatWriterWrote(IntervalFormat format) throws IOException {
+      List<TimeInterval> intervals = sortedIntervals(new Random(7), 500);
+      Path file = write(intervals, format, "intervals");
+      for(long window : WINDOWS)
+         assertEquals(intervals, read(file, format, window), "window " + window);
+   }
+
+   @ParameterizedTest
+   @EnumSource(IntervalFormat.class)
+   void matchesSortAndSweepSubtractor(IntervalFormat format) throws IOException {
+      for(long seed = 1; seed <= 8; seed++){
+         Random random = new Random(seed);
+         List<TimeInterval> subtractFrom = sortedIntervals(random, 1 + random.nextInt(400));
+         List<TimeInterval> subtractThese = sortedIntervals(random, random.nextInt(400));
+         List<TimeInterval> expected = SortAndSweepSubtractor.subtract(subtractFrom, subtractThese);
+         Path minuendFile = write(subtractFrom, format, "minuends"), operandFile = write(subtractThese, format, "operands");
+
+         for(long window : WINDOWS){
+            Path output = directory.resolve("residuals-" + window);
+            try(MappedIntervalReader minuends = open(minuendFile, format, window);
+                MappedIntervalReader operands = open(operandFile, format, window);
+                ChannelIntervalWriter residuals = new ChannelIntervalWriter(channel(output), format, IntervalFormat.MAX_CSV_RECORD_LENGTH)){
+               new StreamingSubtractor().subtract(minuends, operands, residuals);
+            }
+            assertEquals(expected, read(output, format, window), "seed " + seed + " window " + window);
+         }
+
+         Path output = directory.resolve("residuals");
+         assertEquals(expected.size(), StreamingSubtractor.subtract(minuendFile, operandFile, output, format), "seed " + seed);
+         assertEquals(expected, read(output, format, MappedIntervalReader.DEFAULT_WINDOW), "seed " + seed);
+      }
+   }
+
+   /*Sorted by start only, as the streaming input requires, with ties and nesting
+   * Times mix minute, second, millisecond and nanosecond precision, so CSV records vary in length*/
+   private static List<TimeInterval> sortedIntervals(Random random, int count){
+      List<TimeInterval> intervals = new ArrayList<>();
+      long nanosPerMinute = 60_000_000_000L;
+      for(int i = 0; i < count; i++){
+         long start = (8 * 60 + random.nextInt(600)) * nanosPerMinute + precise(random);
+         int shape = random.nextInt(20);
+         long length = shape < 2 ? 0 : (shape < 4 ? 120 + random.nextInt(120) : 1 + random.nextInt(60)) * nanosPerMinute + precise(random);
+         intervals.add(new TimeInterval(LocalTime.ofNanoOfDay(start), LocalTime.ofNanoOfDay(start + length)));
+      }
+      intervals.sort((a, b) -> a.start.compareTo(b.start));
+      return intervals;
+   }
+
+   private static long precise(Random random){
+      switch(random.nextInt(4)){
+         case 0: return 0;
+         case 1: return random.nextInt(60) * 1_000_000_000L;
+         case 2: return random.nextInt(60_000) * 1_000_000L;
+         default: return (long) (random.nextDouble() * 60_000_000_000L);
+      }
+   }
+
+   private Path write(List<TimeInterval> intervals, IntervalFormat format, String name) throws IOException {
+      Path file = directory.resolve(name + "." + format.name().toLowerCase());
+      try(ChannelIntervalWriter writer = new ChannelIntervalWriter(file, format)){
+         for(TimeInterval interval : intervals)
+            writer.write(interval.start.toNanoOfDay(), interval.end.toNanoOfDay());
+      }
+      return file;
+   }
+
+   private static List<TimeInterval> read(Path file, IntervalFormat format, long window) throws IOException {
+      List<TimeInterval> intervals = new ArrayList<>();
+      try(MappedIntervalReader reader = open(file, format, window)){
+         while(reader.next())
+            intervals.add(new TimeInterval(LocalTime.ofNanoOfDay(reader.start()), LocalTime.ofNanoOfDay(reader.end())));
+      }
+      return intervals;
+   }
+
+   private static MappedIntervalReader open(Path file, IntervalFormat format, long window) throws IOException {
+      return new MappedIntervalReader(FileChannel.open(file, StandardOpenOption.READ), format, window);
+   }
+
+   private static FileChannel channel(Path file) throws IOException {
+      return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+   }
+}
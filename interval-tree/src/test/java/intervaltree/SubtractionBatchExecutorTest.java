@@ -0,0 +1,233 @@
+/***************************************************************************
+ * COPYRIGHT (C) 2018, Munish Bhatia.
+ * All rights reserved. This material contains unpublished, copyrighted
+ * work including confidential and proprietary information.
+ ***************************************************************************/
+
+package intervaltree;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/*
+* Checks backpressure, deadlines, cancellation, shutdown and the queue metrics of SubtractionBatchExecutor
+* Jobs are held running by a minuend list that blocks on a latch when the engine first reads it, and the platform pool
+* is used throughout, so a job submitted while every worker is held is known not to have started
+* */
+class SubtractionBatchExecutorTest {
+   private static final int WORKERS = Runtime.getRuntime().availableProcessors();
+   private static final List<TimeInterval> OPERANDS = Arrays.asList(new TimeInterval(9, 15, 9, 45));
+
+   private final CountDownLatch release = new CountDownLatch(1);
+   private final CountDownLatch started = new CountDownLatch(WORKERS);
+   private SubtractionBatchExecutor executor;
+
+   @AfterEach
+   void tearDown(){
+      release.countDown();
+      if(executor != null)
+         executor.close();
+   }
+
+   @Test
+   void jobsReturnTheResidualsOfTheirEngine() throws Exception {
+      executor = new SubtractionBatchExecutor(SubtractionEngine.INTERVAL_TREE, 4, false);
+      List<TimeInterval> subtractFrom = Arrays.asList(new TimeInterval(9, 0, 10, 0), new TimeInterval(9, 20, 9, 30));
+      assertEquals(SortAndSweepSubtractor.subtract(subtractFrom, OPERANDS), executor.submit(subtractFrom, OPERANDS).get());
+      assertEquals(new ArrayList<>(), executor.submit(Arrays.asList(new TimeInterval(9, 20, 9, 30)), OPERANDS).get());
+      assertEquals(2, executor.getCompletedCount());
+   }
+
+   @Test
+   void fullExecutorRejectsAfterMaxWait() throws Exception {
+      executor = new SubtractionBatchExecutor(SubtractionEngine.SORT_AND_SWEEP, WORKERS, false);
+      List<CompletableFuture<List<TimeInterval>>> held = holdEveryWorker();
+
+      assertNull(executor.trySubmit(new SubtractionBatchExecutor.Job(minuends(), OPERANDS), Duration.ofMillis(20)));
+      assertEquals(1, executor.getRejectedCount());
+      assertEquals(WORKERS, executor.getSubmittedCount());
+
+      release.countDown();
+      for(CompletableFuture<List<TimeInterval>> job : held)
+         job.get(1, TimeUnit.MINUTES);
+      assertNotNull(executor.trySubmit(new SubtractionBatchExecutor.Job(minuends(), OPERANDS), Duration.ofSeconds(10)).get(1, TimeUnit.MINUTES));
+      assertDrained(WORKERS + 1);
+   }
+
+   @Test
+   void jobPastItsDeadlineNeverRuns() throws Exception {
+      executor = new SubtractionBatchExecutor(SubtractionEngine.SORT_AND_SWEEP, WORKERS + 1, false);
+      List<CompletableFuture<List<TimeInterval>>> held = holdEveryWorker();
+      AtomicBoolean ran = new AtomicBoolean();
+
+      CompletableFuture<List<TimeInterval>> late = executor.submit(new SubtractionBatchExecutor.Job(tripwire(ran), OPERANDS, Duration.ofMillis(10)));
+      CompletionException e = assertThrows(CompletionException.class, late::join);
+      assertTrue(e.getCause() instanceof TimeoutException);
+      assertEquals(1, executor.getExpiredCount());
+
+      release.countDown();
+      for(CompletableFuture<List<TimeInterval>> job : held)
+         job.get(1, TimeUnit.MINUTES);
+      executor.close();
+      assertFalse(ran.get(), "Expired Job Was Run");
+      assertDrained(WORKERS);
+   }
+
+   @Test
+   void jobCancelledBeforeItStartsNeverRuns() throws Exception {
+      executor = new SubtractionBatchExecutor(SubtractionEngine.SORT_AND_SWEEP, WORKERS + 1, false);
+      List<CompletableFuture<List<TimeInterval>>> held = holdEveryWorker();
+      AtomicBoolean ran = new AtomicBoolean();
+
+      CompletableFuture<List<TimeInterval>> cancelled = executor.submit(tripwire(ran), OPERANDS);
+      assertEquals(1, executor.getQueueDepth());
+      assertTrue(cancelled.cancel(false));
+      assertThrows(CancellationException.class, cancelled::join);
+      assertEquals(1, executor.getCancelledCount());
+
+      release.countDown();
+      for(CompletableFuture<List<TimeInterval>> job : held)
+         job.get(1, TimeUnit.MINUTES);
+      executor.close();
+      assertFalse(ran.get(), "Cancelled Job Was Run");
+      assertDrained(WORKERS);
+   }
+
+   @Test
+   void shutdownNowCancelsJobsThatHaveNotStarted() throws Exception {
+      executor = new SubtractionBatchExecutor(SubtractionEngine.SORT_AND_SWEEP, WORKERS + 3, false);
+      List<CompletableFuture<List<TimeInterval>>> held = holdEveryWorker();
+      AtomicBoolean ran = new AtomicBoolean();
+      List<CompletableFuture<List<TimeInterval>>> waiting = new ArrayList<>();
+      for(int j = 0; j < 3; j++)
+         waiting.add(executor.submit(tripwire(ran), OPERANDS));
+
+      assertEquals(3, executor.shutdownNow());
+      assertThrows(IllegalStateException.class, () -> executor.submit(minuends(), OPERANDS));
+      for(CompletableFuture<List<TimeInterval>> job : waiting)
+         assertTrue(job.isCancelled());
+
+      release.countDown();
+      for(CompletableFuture<List<TimeInterval>> job : held)
+         job.get(1, TimeUnit.MINUTES);
+      assertTrue(executor.awaitTermination(Duration.ofMinutes(1)));
+      assertFalse(ran.get(), "Cancelled Job Was Run");
+      assertEquals(0, executor.getQueueDepth());
+      assertEquals(3, executor.getCancelledCount());
+   }
+
+   @Test
+   void interruptedCloseCancelsWaitingJobsAndKeepsTheInterrupt() throws Exception {
+      executor = new SubtractionBatchExecutor(SubtractionEngine.SORT_AND_SWEEP, WORKERS + 1, false);
+      List<CompletableFuture<List<TimeInterval>>> held = holdEveryWorker();
+      CompletableFuture<List<TimeInterval>> waiting = executor.submit(minuends(), OPERANDS);
+
+      //Let the held jobs finish once close has had time to cancel the waiting one
+      Thread releaser = new Thread(() -> {
+         try{
+            Thread.sleep(100);
+         }
+         catch(InterruptedException ignored){
+         }
+         release.countDown();
+      });
+      releaser.start();
+      Thread.currentThread().interrupt();
+      executor.close();
+      assertTrue(Thread.interrupted(), "Interrupt Status Was Not Restored");
+      releaser.join();
+
+      assertTrue(waiting.isCancelled());
+      for(CompletableFuture<List<TimeInterval>> job : held)
+         assertTrue(job.isDone() && !job.isCompletedExceptionally());
+      assertEquals(0, executor.getQueueDepth());
+   }
+
+   //Submits one job per worker thread and waits until all of them are running and blocked on 'release'
+   private List<CompletableFuture<List<TimeInterval>>> holdEveryWorker() throws InterruptedException {
+      List<CompletableFuture<List<TimeInterval>>> held = new ArrayList<>();
+      for(int w = 0; w < WORKERS; w++)
+         held.add(executor.submit(gated(), OPERANDS));
+      assertTrue(started.await(1, TimeUnit.MINUTES), "Held Jobs Did Not Start");
+      assertEquals(WORKERS, executor.getRunningCount());
+      assertEquals(0, executor.getQueueDepth());
+      return held;
+   }
+
+   private void assertDrained(long completed){
+      assertEquals(0, executor.getQueueDepth());
+      assertEquals(0, executor.getRunningCount());
+      assertEquals(completed, executor.getCompletedCount());
+      assertTrue(executor.getPeakQueueDepth() >= 1);
+   }
+
+   private static List<TimeInterval> minuends(){
+      return Arrays.asList(new TimeInterval(9, 0, 10, 0));
+   }
+
+   //Minuends that block the engine reading them until 'release' opens, signalling 'started' first
+   private List<TimeInterval> gated(){
+      List<TimeInterval> minuends = minuends();
+      return new AbstractList<TimeInterval>() {
+         private boolean opened = false;
+
+         @Override
+         public TimeInterval get(int index){
+            return minuends.get(index);
+         }
+
+         @Override
+         public int size(){
+            if(!opened){
+               opened = true;
+               started.countDown();
+               try{
+                  release.await();
+               }
+               catch(InterruptedException e){
+                  Thread.currentThread().interrupt();
+               }
+            }
+            return minuends.size();
+         }
+      };
+   }
+
+   //Minuends that record being read, so a test can tell whether the job ever ran
+   private static List<TimeInterval> tripwire(AtomicBoolean ran){
+      List<TimeInterval> minuends = minuends();
+      return new AbstractList<TimeInterval>() {
+         @Override
+         public TimeInterval get(int index){
+            ran.set(true);
+            return minuends.get(index);
+         }
+
+         @Override
+         public int size(){
+            ran.set(true);
+            return minuends.size();
+         }
+      };
+   }
+}
@@ -0,0 +1,64 @@
+/***************************************************************************
+ * COPYRIGHT (C) 2018, Munish Bhatia.
+ * All rights reserved. This material contains unpublished, copyrighted
+ * work including confidential and proprietary information.
+ ***************************************************************************/
+
+package intervaltree;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+/*
+* Checks that every SubtractionEngine produces the residuals of SORT_AND_SWEEP
+* The random cases use whole-minute bounds, so BITMAP applies, and a small span of the day, so zero length intervals,
+* shared end points and operands that only touch come up often
+* */
+class SubtractionEngineEquivalenceTest {
+   private static final int CASES = 3000;
+
+   @ParameterizedTest
+   @EnumSource(SubtractionEngine.class)
+   void zeroLengthMinuendWhereOperandsTouchSurvives(SubtractionEngine engine){
+      List<TimeInterval> subtractFrom = Arrays.asList(new TimeInterval(10, 0, 10, 0));
+      List<TimeInterval> subtractThese = Arrays.asList(new TimeInterval(9, 0, 10, 0), new TimeInterval(10, 0, 11, 0));
+      assertEquals(subtractFrom, residuals(engine, subtractFrom, subtractThese));
+   }
+
+   @ParameterizedTest
+   @EnumSource(SubtractionEngine.class)
+   void randomCasesMatchSortAndSweep(SubtractionEngine engine){
+      Random random = new Random(16);
+      for(int c = 0; c < CASES; c++){
+         List<TimeInterval> subtractFrom = randomIntervals(random, random.nextInt(12));
+         List<TimeInterval> subtractThese = randomIntervals(random, random.nextInt(12));
+         assertEquals(residuals(SubtractionEngine.SORT_AND_SWEEP, subtractFrom, subtractThese),
+               residuals(engine, subtractFrom, subtractThese), "subtractFrom " + subtractFrom + ", subtractThese " + subtractThese);
+      }
+   }
+
+   //Residuals in start then end order
+   private static List<TimeInterval> residuals(SubtractionEngine engine, List<TimeInterval> subtractFrom, List<TimeInterval> subtractThese){
+      List<TimeInterval> sorted = new ArrayList<>(engine.subtract(subtractFrom, subtractThese));
+      sorted.sort(SortAndSweepSubtractor.BY_START_THEN_END);
+      return sorted;
+   }
+
+   //Intervals of 0 to 4 minutes starting between 09:00 and 09:19, about one in five of zero length
+   private static List<TimeInterval> randomIntervals(Random random, int count){
+      List<TimeInterval> intervals = new ArrayList<>(count);
+      for(int i = 0; i < count; i++){
+         LocalTime start = LocalTime.of(9, random.nextInt(20));
+         intervals.add(new TimeInterval(start, start.plusMinutes(random.nextInt(5))));
+      }
+      return intervals;
+   }
+}
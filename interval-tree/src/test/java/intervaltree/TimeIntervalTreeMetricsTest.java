@@ -0,0 +1,35 @@
+/***************************************************************************
+ * COPYRIGHT (C) 2018, Munish Bhatia.
+ * All rights reserved. This material contains unpublished, copyrighted
+ * work including confidential and proprietary information.
+ ***************************************************************************/
+
+package intervaltree;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+/*
+* Checks that each tree operation is recorded once, in its own histogram
+* */
+class TimeIntervalTreeMetricsTest {
+   @Test
+   void subtractionIsNotAlsoCountedAsInserts(){
+      BalancedTimeIntervalTree tree = new BalancedTimeIntervalTree();
+      TimeIntervalTreeMetrics metrics = tree.getMetrics();
+      metrics.setEnabled(true);
+
+      tree.insertInterval(new TimeInterval(9, 0, 10, 0));
+      tree.insertInterval(new TimeInterval(11, 0, 12, 0));
+      //Splits both intervals, so the second half of each is carried and re-inserted
+      tree.subtract(new TimeInterval(9, 15, 9, 30));
+      tree.subtract(new TimeInterval(11, 15, 11, 30));
+      tree.deleteInterval(new TimeInterval(9, 0, 9, 15));
+
+      assertEquals(3, tree.size());
+      assertEquals(2, metrics.getInsertCount());
+      assertEquals(2, metrics.getSubtractCount());
+      assertEquals(1, metrics.getDeleteCount());
+   }
+}
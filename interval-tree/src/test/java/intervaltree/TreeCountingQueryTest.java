@@ -0,0 +1,91 @@
+/***************************************************************************
+ * COPYRIGHT (C) 2018, Munish Bhatia.
+ * All rights reserved. This material contains unpublished, copyrighted
+ * work including confidential and proprietary information.
+ ***************************************************************************/
+
+package intervaltree;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/*
+* Checks countOverlapping, countStabbing, stab, rank and select, which rely on the subtree sizes and the end time
+* index, against brute force answers after every step of random update sequences
+* */
+class TreeCountingQueryTest {
+   private static final int STEPS = 1500;
+
+   @ParameterizedTest
+   @ValueSource(booleans = {false, true})
+   void countingQueriesMatchBruteForce(boolean pooled){
+      for(long seed = 1; seed <= 4; seed++){
+         RandomTreeOperations operations = new RandomTreeOperations(seed, pooled);
+         BalancedTimeIntervalTree tree = operations.tree;
+         //Half the sequences build the end time index up front, so it is maintained through every update
+         if(seed % 2 == 0)
+            tree.countStabbing(LocalTime.NOON);
+         for(int step = 0; step < STEPS; step++){
+            operations.step();
+            List<TimeInterval> intervals = operations.intervals();
+            assertEquals(intervals.size(), tree.size());
+
+            TimeInterval key = operations.interval();
+            assertEquals(bruteOverlapping(intervals, key), tree.countOverlapping(key), "countOverlapping " + key);
+            assertEquals(tree.getOverlappingIntervals(key).size(), tree.countOverlapping(key), "getOverlappingIntervals " + key);
+
+            LocalTime t = step % 100 == 0 ? LocalTime.MAX : operations.instant();
+            assertEquals(bruteStabbing(intervals, t), tree.countStabbing(t), "countStabbing " + t);
+            assertEquals(bruteStabbing(intervals, t), tree.stab(t).size(), "stab " + t);
+            assertEquals(bruteRank(intervals, t), tree.rank(t), "rank " + t);
+
+            if(!intervals.isEmpty()){
+               List<LocalTime> starts = new ArrayList<>();
+               for(TimeInterval interval:intervals)
+                  starts.add(interval.start);
+               int k = operations.random().nextInt(intervals.size());
+               assertEquals(starts.get(k), tree.select(k).interval.start, "select " + k);
+               assertEquals(k, tree.rank(tree.select(k).interval.start) + countBefore(starts, k));
+            }
+         }
+      }
+   }
+
+   private static int bruteOverlapping(List<TimeInterval> intervals, TimeInterval key){
+      int count = 0;
+      for(TimeInterval interval:intervals)
+         if(TimeInterval.doOverlap(interval, key))
+            count++;
+      return count;
+   }
+
+   private static int bruteStabbing(List<TimeInterval> intervals, LocalTime t){
+      int count = 0;
+      for(TimeInterval interval:intervals)
+         if(!interval.start.isAfter(t) && interval.end.isAfter(t))
+            count++;
+      return count;
+   }
+
+   private static int bruteRank(List<TimeInterval> intervals, LocalTime t){
+      int count = 0;
+      for(TimeInterval interval:intervals)
+         if(interval.start.isBefore(t))
+            count++;
+      return count;
+   }
+
+   //Intervals before position k sharing the start time of the one at k
+   private static int countBefore(List<LocalTime> starts, int k){
+      int count = 0;
+      for(int i = k - 1; i >= 0 && starts.get(i).equals(starts.get(k)); i--)
+         count++;
+      return count;
+   }
+}
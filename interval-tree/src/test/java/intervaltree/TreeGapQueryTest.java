@@ -0,0 +1,98 @@
+/***************************************************************************
+ * COPYRIGHT (C) 2018, Munish Bhatia.
+ * All rights reserved. This material contains unpublished, copyrighted
+ * work including confidential and proprietary information.
+ ***************************************************************************/
+
+package intervaltree;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/*
+* Checks findAllGaps and findFirstGap, which prune with the minStart and maxGap metadata, against free stretches
+* worked out by brute force after every step of random update sequences
+* A free stretch overlaps no interval; zero length intervals inside free time split it in two
+* */
+class TreeGapQueryTest {
+   private static final int STEPS = 1500;
+   private static final LocalTime END_OF_DAY = LocalTime.MAX;
+
+   @ParameterizedTest
+   @ValueSource(booleans = {false, true})
+   void gapQueriesMatchBruteForce(boolean pooled){
+      for(long seed = 1; seed <= 4; seed++){
+         RandomTreeOperations operations = new RandomTreeOperations(seed, pooled);
+         BalancedTimeIntervalTree tree = operations.tree;
+         for(int step = 0; step < STEPS; step++){
+            operations.step();
+            List<TimeInterval> intervals = operations.intervals();
+
+            LocalTime from = operations.instant(), to = operations.instant();
+            TimeInterval window = from.isAfter(to) ? new TimeInterval(to, from) : new TimeInterval(from, to);
+            assertEquals(bruteGaps(intervals, window.start, window.end), tree.findAllGaps(window), "findAllGaps " + window);
+
+            LocalTime after = operations.instant();
+            Duration minLength = Duration.ofMinutes(operations.random().nextInt(4) == 0 ? 0 : operations.random().nextInt(90));
+            assertEquals(bruteFirstGap(intervals, after, minLength), tree.findFirstGap(after, minLength), "findFirstGap " + after + " " + minLength);
+         }
+      }
+   }
+
+   //Free stretches of positive length within [from, to], in time order
+   private static List<TimeInterval> bruteGaps(List<TimeInterval> intervals, LocalTime from, LocalTime to){
+      TreeSet<LocalTime> cuts = new TreeSet<>();
+      TreeSet<LocalTime> points = new TreeSet<>();
+      cuts.add(from);
+      cuts.add(to);
+      for(TimeInterval interval:intervals){
+         for(LocalTime t : new LocalTime[]{interval.start, interval.end})
+            if(t.isAfter(from) && t.isBefore(to))
+               cuts.add(t);
+         if(interval.start.equals(interval.end))
+            points.add(interval.start);
+      }
+
+      List<TimeInterval> gaps = new ArrayList<>();
+      LocalTime gapStart = null, previous = null;
+      for(LocalTime cut : cuts){
+         if(previous != null){
+            boolean free = isFree(intervals, previous, cut);
+            if(gapStart != null && (!free || points.contains(previous))){
+               gaps.add(new TimeInterval(gapStart, previous));
+               gapStart = null;
+            }
+            if(free && gapStart == null)
+               gapStart = previous;
+         }
+         previous = cut;
+      }
+      if(gapStart != null)
+         gaps.add(new TimeInterval(gapStart, previous));
+      return gaps;
+   }
+
+   //True when no interval of positive length covers the elementary segment [from, to]
+   private static boolean isFree(List<TimeInterval> intervals, LocalTime from, LocalTime to){
+      for(TimeInterval interval:intervals)
+         if(interval.start.isBefore(interval.end) && !interval.start.isAfter(from) && !interval.end.isBefore(to))
+            return false;
+      return true;
+   }
+
+   //The first free stretch after 'after' at least 'minLength' long, running to the next interval or the end of the day
+   private static TimeInterval bruteFirstGap(List<TimeInterval> intervals, LocalTime after, Duration minLength){
+      for(TimeInterval gap : bruteGaps(intervals, after, END_OF_DAY))
+         if(Duration.between(gap.start, gap.end).compareTo(minLength) >= 0)
+            return gap;
+      return null;
+   }
+}